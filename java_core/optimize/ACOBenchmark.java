@@ -0,0 +1,427 @@
+package optimize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Throughput benchmark for ACO_TSP on random Euclidean instances.
+ * Runs parallel tour construction for increasing pool sizes, reports tours built per
+ * second and the speedup over one thread, and checks that every pool size finds the
+ * same best tour length.
+ *
+ * The "alloc" mode measures heap bytes allocated per Colony.iterate() call, using the
+ * HotSpot per-thread allocation counter, and the collector activity over the run.
+ * The steady-state sequential loop should report 0 bytes.
+ *
+ * The "convergence" mode runs every pheromone-update variant from several seeds and
+ * reports the tours built (evaluations) until the best tour is within a gap of the
+ * best length any run found.
+ *
+ * The "warmstart" mode solves a random instance, checkpoints it, replaces a few cities
+ * and compares a cold run on the changed instance with one resumed from the
+ * checkpoint: iterations until each reaches the cold run's final length.
+ *
+ * The "localsearch" mode compares the best tour found without local search, with
+ * 2-opt + Or-opt on the iteration-best tour and on every ant's tour, for the same
+ * number of iterations.
+ *
+ * The "instance" mode loads a TSPLIB file (or a binary matrix written by
+ * TSPInstance.writeBinary, by its .bin extension), or generates a random EUC_2D instance
+ * when given a city count, and reports the load time, peak RSS and a short solve with
+ * triangular float storage and candidate lists.
+ *
+ * Usage: java optimize.ACOBenchmark [cities] [ants] [iterations] [candidateListSize]
+ *        java optimize.ACOBenchmark alloc [cities] [ants] [iterations] [candidateListSize]
+ *        java optimize.ACOBenchmark convergence [cities] [ants] [iterations] [runs] [gapPercent]
+ *        java optimize.ACOBenchmark warmstart [cities] [ants] [iterations] [changedCities]
+ *        java optimize.ACOBenchmark localsearch [cities] [ants] [iterations] [candidateListSize]
+ *        java optimize.ACOBenchmark instance <file.tsp|file.bin|cities> [ants] [iterations] [candidateListSize]
+ */
+public class ACOBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("instance")) {
+            instance(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("convergence")) {
+            convergence(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("warmstart")) {
+            warmStart(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("localsearch")) {
+            localSearch(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("alloc")) {
+            allocation(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+
+        double[][] dist = randomEuclidean(cities, 1L);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== ACO Parallel Tour Construction ===");
+        System.out.println("  Cities: " + cities);
+        System.out.println("  Ants: " + ants);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("  Candidate List Size: " + (k > 0 ? k : "off"));
+        System.out.println("  Available Cores: " + cores);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-10s %-15s %-10s %-20s", "Threads", "Tours/sec", "Speedup", "Best Length"));
+
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(cores, threads * 2) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ACO_TSP aco = new ACO_TSP(dist, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10)
+                        .withParallelAnts(pool);
+                if (k > 0) aco.withCandidateLists(k);
+                aco.solve();  // warm-up
+                long t0 = System.nanoTime();
+                ACO_TSP.Result r = aco.solve();
+                double seconds = (System.nanoTime() - t0) / 1e9;
+                double rate = (double) ants * iterations / seconds;
+                if (threads == 1) baseline = rate;
+                System.out.println(String.format("%-10d %-15.1f %-10.2f %-20.4f", threads, rate, rate / baseline, r.bestLength));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void allocation(String[] args) {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+
+        double[][] dist = randomEuclidean(cities, 1L);
+
+        System.out.println("=== ACO Allocation Benchmark ===");
+        System.out.println("  Cities: " + cities);
+        System.out.println("  Ants: " + ants);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-28s %-18s %-15s %-10s %-10s",
+                "Variant", "Bytes/Iteration", "ms/Iteration", "GCs", "GC ms"));
+
+        // Warm up, then measure; each variant gets a fresh colony with the same seed
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+            measure(new ACO_TSP(dist, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10),
+                    "full scan", iterations, print);
+            measure(new ACO_TSP(dist, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10)
+                    .withCandidateLists(k), "candidate lists (k=" + k + ")", iterations, print);
+            measure(new ACO_TSP(dist, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10)
+                    .withCandidateLists(k).withParallelAnts(null), "per-ant streams", iterations, print);
+        }
+    }
+
+    private static void convergence(String[] args) {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        double gap = args.length > 4 ? Double.parseDouble(args[4]) : 3.0;
+
+        TSPInstance instance = randomCoordinates(cities, 1L);
+        ACO_TSP.Variant[] variants = ACO_TSP.Variant.values();
+        double[][][] best = new double[variants.length][runs][];  // best length after each iteration
+        double overall = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < variants.length; v++) {
+            for (int run = 0; run < runs; run++) {
+                ACO_TSP.Result r = new ACO_TSP(instance, ants, iterations, 1.0, 3.0, 0.1, 100.0, 1000L + run, false, 10,
+                        ACO_TSP.Storage.TRIANGULAR).withCandidateLists(15).withVariant(variants[v]).solve();
+                best[v][run] = new double[iterations];
+                for (int t = 0; t < iterations; t++) best[v][run][t] = r.history.get(t).bestLength;
+                overall = Math.min(overall, r.bestLength);
+            }
+        }
+        double target = overall * (1.0 + gap / 100.0);
+
+        System.out.println("=== ACO Convergence by Variant ===");
+        System.out.println("  Cities: " + cities);
+        System.out.println("  Ants: " + ants);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("  Runs per Variant: " + runs);
+        System.out.println(String.format("  Target: %.1f (best found %.1f + %.1f%%)", target, overall, gap));
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-20s %-10s %-22s %-15s", "Variant", "Reached", "Median Evals to Target", "Mean Final"));
+        for (int v = 0; v < variants.length; v++) {
+            long[] evals = new long[runs];
+            int reached = 0;
+            double finalSum = 0.0;
+            for (int run = 0; run < runs; run++) {
+                evals[run] = Long.MAX_VALUE;
+                for (int t = 0; t < iterations; t++) {
+                    if (best[v][run][t] <= target) {
+                        evals[run] = (long) (t + 1) * ants;
+                        reached++;
+                        break;
+                    }
+                }
+                finalSum += best[v][run][iterations - 1];
+            }
+            Arrays.sort(evals);
+            long median = evals[runs / 2];
+            System.out.println(String.format("%-20s %-10s %-22s %-15.1f", variants[v], reached + "/" + runs,
+                    median == Long.MAX_VALUE ? "-" : Long.toString(median), finalSum / runs));
+        }
+    }
+
+    private static void warmStart(String[] args) throws IOException {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int changed = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        // The changed instance drops the first cities and appends as many new ones
+        Random rnd = new Random(1L);
+        double[] x = new double[cities + changed];
+        double[] y = new double[cities + changed];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = rnd.nextDouble() * 1000.0;
+            y[i] = rnd.nextDouble() * 1000.0;
+        }
+        TSPInstance before = TSPInstance.fromCoordinates("before", TSPInstance.EdgeWeightType.EUC_2D,
+                Arrays.copyOf(x, cities), Arrays.copyOf(y, cities));
+        TSPInstance after = TSPInstance.fromCoordinates("after", TSPInstance.EdgeWeightType.EUC_2D,
+                Arrays.copyOfRange(x, changed, x.length), Arrays.copyOfRange(y, changed, y.length));
+
+        Path checkpoint = Files.createTempFile("aco", ".ckpt");
+        try {
+            ACO_TSP first = newWarmStartSolver(before, ants, iterations);
+            ACO_TSP.Result r0 = first.solve();
+            long t0 = System.nanoTime();
+            first.writeCheckpoint(r0, checkpoint);
+            double writeMs = (System.nanoTime() - t0) / 1e6;
+
+            ACO_TSP.Result cold = newWarmStartSolver(after, ants, iterations).solve();
+            long t1 = System.nanoTime();
+            ACO_TSP warmSolver = newWarmStartSolver(after, ants, iterations).resumeFrom(checkpoint);
+            double readMs = (System.nanoTime() - t1) / 1e6;
+            ACO_TSP.Result warm = warmSolver.solve();
+
+            double target = cold.bestLength;
+            System.out.println("=== ACO Warm Start ===");
+            System.out.println("  Cities: " + cities + " (" + changed + " replaced)");
+            System.out.println("  Ants: " + ants);
+            System.out.println("  Iterations: " + iterations);
+            System.out.println(String.format("  Checkpoint: %.1f KB, written in %.1f ms, resumed in %.1f ms",
+                    Files.size(checkpoint) / 1024.0, writeMs, readMs));
+            System.out.println(String.format("  Previous Best (before change): %.1f", r0.bestLength));
+            System.out.println("----------------------------------------");
+            System.out.println(String.format("%-10s %-15s %-25s", "Start", "Final Best", "Iterations to " + (long) target));
+            System.out.println(String.format("%-10s %-15.1f %-25d", "cold", cold.bestLength, iterationsTo(cold, target)));
+            int warmIterations = iterationsTo(warm, target);
+            System.out.println(String.format("%-10s %-15.1f %-25s", "warm", warm.bestLength,
+                    warmIterations < 0 ? "-" : Integer.toString(warmIterations)));
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    private static ACO_TSP newWarmStartSolver(TSPInstance instance, int ants, int iterations) {
+        return new ACO_TSP(instance, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10,
+                ACO_TSP.Storage.TRIANGULAR).withCandidateLists(15);
+    }
+
+    // First iteration (1-based) whose best length is at or below target, or -1
+    private static int iterationsTo(ACO_TSP.Result r, double target) {
+        for (ACO_TSP.IterationLog log : r.history) {
+            if (log.bestLength <= target) return log.iteration;
+        }
+        return -1;
+    }
+
+    private static void localSearch(String[] args) {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+
+        TSPInstance instance = randomCoordinates(cities, 1L);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== ACO Local Search ===");
+        System.out.println("  Cities: " + cities);
+        System.out.println("  Ants: " + ants);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("  Candidate List Size: " + k);
+        System.out.println("  Available Cores: " + cores);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-20s %-15s %-15s", "Local Search", "Best Length", "Seconds"));
+
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        try {
+            ACO_TSP.LocalSearchScope[] scopes = {null, ACO_TSP.LocalSearchScope.ITERATION_BEST, ACO_TSP.LocalSearchScope.ALL_ANTS};
+            for (ACO_TSP.LocalSearchScope scope : scopes) {
+                ACO_TSP aco = new ACO_TSP(instance, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10,
+                        ACO_TSP.Storage.TRIANGULAR).withCandidateLists(k).withParallelAnts(pool);
+                if (scope != null) aco.withLocalSearch(scope);
+                long t0 = System.nanoTime();
+                ACO_TSP.Result r = aco.solve();
+                double seconds = (System.nanoTime() - t0) / 1e9;
+                System.out.println(String.format("%-20s %-15.1f %-15.2f", scope != null ? scope : "off", r.bestLength, seconds));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void instance(String[] args) throws IOException {
+        String source = args[0];
+        int ants = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+
+        long rss0 = peakRssKb();
+        long t0 = System.nanoTime();
+        TSPInstance instance;
+        if (source.matches("\\d+")) {
+            instance = randomCoordinates(Integer.parseInt(source), 1L);
+        } else if (source.endsWith(".bin")) {
+            instance = TSPInstance.mapBinary(Paths.get(source));
+        } else {
+            instance = TSPInstance.load(Paths.get(source));
+        }
+        double loadMs = (System.nanoTime() - t0) / 1e6;
+        long rssLoaded = peakRssKb();
+
+        System.out.println("=== ACO Instance Benchmark ===");
+        System.out.println("  Instance: " + instance.getName());
+        System.out.println("  Cities: " + instance.size());
+        System.out.println("  Edge Weight Type: " + instance.getEdgeWeightType());
+        System.out.println("  Ants: " + ants);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("  Load time: %.1f ms", loadMs));
+        System.out.println("  Peak RSS before load: " + formatKb(rss0));
+        System.out.println("  Peak RSS after load: " + formatKb(rssLoaded));
+
+        long t1 = System.nanoTime();
+        ACO_TSP aco = new ACO_TSP(instance, ants, iterations, 1.0, 3.0, 0.1, 100.0, 7L, false, 10,
+                instance.isSymmetric() ? ACO_TSP.Storage.TRIANGULAR_FLOAT : ACO_TSP.Storage.DENSE_FLOAT)
+                .withCandidateLists(k);
+        double setupMs = (System.nanoTime() - t1) / 1e6;
+        long t2 = System.nanoTime();
+        ACO_TSP.Result r = aco.solve();
+        double solveMs = (System.nanoTime() - t2) / 1e6;
+
+        System.out.println(String.format("  Setup (matrices, candidate lists k=%d): %.1f ms", k, setupMs));
+        System.out.println(String.format("  Solve: %.1f ms (%.2f ms/iteration)", solveMs, solveMs / iterations));
+        System.out.println(String.format("  Best Length: %.2f", r.bestLength));
+        System.out.println("  Peak RSS: " + formatKb(peakRssKb()));
+    }
+
+    // High-water mark of the resident set (VmHWM) in kB, or -1 where /proc is not available
+    private static long peakRssKb() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) return -1;
+        try (BufferedReader in = Files.newBufferedReader(status)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private static String formatKb(long kb) {
+        return kb < 0 ? "n/a" : String.format("%.1f MB", kb / 1024.0);
+    }
+
+    private static void measure(ACO_TSP aco, String name, int iterations, boolean print) {
+        ACO_TSP.Colony colony = aco.newColony();
+        colony.iterate(0);  // first iteration outside the measurement
+        long gcCount0 = gcCount();
+        long gcTime0 = gcTime();
+        long bytes0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int t = 1; t < iterations; t++) {
+            colony.iterate(t);
+        }
+        long t1 = System.nanoTime();
+        long bytes1 = allocatedBytes();
+        if (print) {
+            int measured = Math.max(1, iterations - 1);
+            System.out.println(String.format("%-28s %-18.1f %-15.3f %-10d %-10d (best %.2f)",
+                    name, (bytes1 - bytes0) / (double) measured, (t1 - t0) / 1e6 / measured,
+                    gcCount() - gcCount0, gcTime() - gcTime0, colony.bestLength));
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /** EUC_2D instance of n uniformly random points in a 1000 x 1000 square. */
+    static TSPInstance randomCoordinates(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rnd.nextDouble() * 1000.0;
+            y[i] = rnd.nextDouble() * 1000.0;
+        }
+        return TSPInstance.fromCoordinates("random" + n, TSPInstance.EdgeWeightType.EUC_2D, x, y);
+    }
+
+    /** Symmetric distance matrix of n uniformly random points in a 1000 x 1000 square. */
+    static double[][] randomEuclidean(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rnd.nextDouble() * 1000.0;
+            y[i] = rnd.nextDouble() * 1000.0;
+        }
+        double[][] dist = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dist[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+            }
+        }
+        return dist;
+    }
+}
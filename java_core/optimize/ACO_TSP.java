@@ -3,10 +3,40 @@ package optimize;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 
 public class ACO_TSP {
+    /**
+     * How the n x n pheromone, heuristic and choice-info matrices are stored. The
+     * triangular layouts keep one cell per city pair and require a symmetric distance
+     * matrix; the float layouts round the stored values to float precision.
+     */
+    public enum Storage {
+        DENSE,             // n^2 doubles (default)
+        DENSE_FLOAT,       // n^2 floats: half the memory
+        TRIANGULAR,        // n(n+1)/2 doubles: half the memory
+        TRIANGULAR_FLOAT   // n(n+1)/2 floats: a quarter of the memory
+    }
+
+    /**
+     * Pheromone update rule (see withVariant).
+     */
+    public enum Variant {
+        ANT_SYSTEM,        // evaporate everywhere, the iteration-best ant deposits (default)
+        MAX_MIN,           // MMAS: bounded trails, best-so-far schedule, restart on stagnation
+        ANT_COLONY_SYSTEM  // ACS: pseudo-random-proportional choice, local and best-so-far updates
+    }
+
+    /** Which tours the optional local search improves (see withLocalSearch). */
+    public enum LocalSearchScope {
+        ALL_ANTS,        // every ant's tour, in parallel with construction
+        ITERATION_BEST   // only the best tour of each iteration
+    }
+
     public static class Result {
         public final int[] bestTour;
         public final double bestLength;
@@ -39,20 +69,61 @@ public class ACO_TSP {
     }
 
     private final int n;
-    private final double[][] dist;
+    private final TSPInstance instance;
     private final int antCount;
     private final int iterations;
     private final double alpha;
     private final double beta;
     private final double rho;
     private final double Q;
-    private final Random rnd;
+    private final long seed;
+    private final FastRandom rnd;  // same sequence as java.util.Random, but its state can be saved
 
-    private final double[][] tau;
-    private final double[][] eta;
+    private final Storage storage;
+    private final PheromoneMatrix tau;  // lazily evaporated
+    private final CompactMatrix etaBeta;  // heuristic weight eta^beta, fixed for the run
     private final boolean verbose;
     private final int logInterval;
 
+    // k nearest neighbours of each city, closest first; null = always scan every city
+    private int[][] candidates;
+
+    // Choice info tau^alpha * eta^beta, refreshed once per iteration: choice(i, j) for every
+    // pair, or candidateChoice[i][r] for candidates[i][r] when candidate lists are used.
+    // It reads tau at choiceScale, tau's scale at the last full rebuild. Evaporation since
+    // then scales every entry by the same factor, which no selection rule notices, so an
+    // Ant System iteration only refreshes the deposited edges. A full rebuild runs when
+    // every entry changed (tau.version()), under MAX-MIN bounds (the clamp is not a common
+    // factor), and once tau's scale has fallen by CHOICE_RESCALE since the last one.
+    private CompactMatrix choice;
+    private double[][] candidateChoice;
+    private double choiceScale;
+    private long choiceVersion;
+
+    // 2-opt + Or-opt after construction; null = off
+    private LocalSearchScope localSearch;
+    private int[][] localSearchNeighbours;
+
+    // Parallel construction mode (see withParallelAnts)
+    private boolean parallelAnts;
+    private ForkJoinPool pool;
+
+    // Pheromone update rule and its settings (see withVariant)
+    private Variant variant = Variant.ANT_SYSTEM;
+    private int restartAfter = 100;         // MMAS: stagnant iterations before a restart
+    private static final double P_BEST = 0.05;     // MMAS: probability of rebuilding the best tour at convergence
+    private static final double Q0 = 0.9;          // ACS: probability of taking the best-looking city
+    private static final double XI = 0.1;          // ACS: local evaporation rate
+    private static final double CHOICE_RESCALE = 1e-3;  // cached choice info is at most 1000^alpha too high
+    private double tau0;                    // ACS: initial trail, the local update's target
+
+    // Iterations run by earlier solve() calls or the resumed checkpoint; the next
+    // iteration continues their per-ant streams
+    private int completedIterations;
+    // Best tour loaded by resumeFrom for the next solve(), else null
+    private int[] resumedTour;
+    private double resumedLength;
+
     public ACO_TSP(double[][] distanceMatrix, int antCount, int iterations,
                    double alpha, double beta, double rho, double Q, long seed) {
         this(distanceMatrix, antCount, iterations, alpha, beta, rho, Q, seed, true, 10);
@@ -61,29 +132,286 @@ public class ACO_TSP {
     public ACO_TSP(double[][] distanceMatrix, int antCount, int iterations,
                    double alpha, double beta, double rho, double Q, long seed,
                    boolean verbose, int logInterval) {
-        this.n = distanceMatrix.length;
-        this.dist = distanceMatrix;
+        this(distanceMatrix, antCount, iterations, alpha, beta, rho, Q, seed, verbose, logInterval, Storage.DENSE);
+    }
+
+    /**
+     * As above, with the given matrix storage. TRIANGULAR_FLOAT needs a quarter of the
+     * memory of DENSE, which makes instances of tens of thousands of cities practical.
+     */
+    public ACO_TSP(double[][] distanceMatrix, int antCount, int iterations,
+                   double alpha, double beta, double rho, double Q, long seed,
+                   boolean verbose, int logInterval, Storage storage) {
+        this(TSPInstance.fromMatrix(distanceMatrix), antCount, iterations, alpha, beta, rho, Q, seed,
+                verbose, logInterval, storage);
+    }
+
+    /**
+     * Solves a TSPInstance, e.g. one loaded with TSPInstance.load(). Distances are read
+     * through the instance, so coordinate instances never materialise a distance matrix.
+     */
+    public ACO_TSP(TSPInstance instance, int antCount, int iterations,
+                   double alpha, double beta, double rho, double Q, long seed,
+                   boolean verbose, int logInterval, Storage storage) {
+        this.n = instance.size();
+        this.instance = instance;
         this.antCount = antCount;
         this.iterations = iterations;
         this.alpha = alpha;
         this.beta = beta;
         this.rho = rho;
         this.Q = Q;
-        this.rnd = new Random(seed);
+        this.seed = seed;
+        this.rnd = new FastRandom(seed);
         this.verbose = verbose;
         this.logInterval = logInterval;
-        this.tau = new double[n][n];
-        this.eta = new double[n][n];
+        this.storage = storage;
+        this.tau = new PheromoneMatrix(CompactMatrix.create(storage, n));
+        this.etaBeta = CompactMatrix.create(storage, n);
 
+        if (tau.isSymmetric() && !instance.isSymmetric()) {
+            throw new IllegalArgumentException(storage + " storage needs a symmetric instance: " + instance.getName());
+        }
         double initTau = 1.0;
+        tau.fill(initTau);
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                tau[i][j] = (i == j) ? 0.0 : initTau;
-                eta[i][j] = (i == j || dist[i][j] == 0.0) ? 0.0 : (1.0 / dist[i][j]);
+            // A symmetric matrix is filled from its upper triangle only
+            for (int j = etaBeta.isSymmetric() ? i : 0; j < n; j++) {
+                double d = instance.distance(i, j);
+                double eta = (i == j || d == 0.0) ? 0.0 : (1.0 / d);
+                etaBeta.set(i, j, power(eta, beta));
+            }
+        }
+    }
+
+    // x^e, multiplying out the small integer exponents used in practice instead of Math.pow
+    static double power(double x, double e) {
+        if (e == 1.0) return x;
+        if (e == 2.0) return x * x;
+        if (e == 3.0) return x * x * x;
+        if (e == 4.0) {
+            double x2 = x * x;
+            return x2 * x2;
+        }
+        if (e == 0.0) return 1.0;
+        if (e == 0.5) return Math.sqrt(x);
+        return Math.pow(x, e);
+    }
+
+    private double choiceInfo(int i, int j) {
+        return power(tau.get(i, j), alpha) * etaBeta.get(i, j);
+    }
+
+    // Choice info as cached: tau read at choiceScale
+    private double cachedChoiceInfo(int i, int j) {
+        return power(tau.get(i, j, choiceScale), alpha) * etaBeta.get(i, j);
+    }
+
+    // Recomputes all of the cached choice info from tau
+    private void updateChoiceInfo() {
+        choiceScale = tau.scale();
+        choiceVersion = tau.version();
+        if (candidates != null) {
+            if (candidateChoice == null) candidateChoice = new double[n][];
+            for (int i = 0; i < n; i++) {
+                int[] cand = candidates[i];
+                if (candidateChoice[i] == null) candidateChoice[i] = new double[cand.length];
+                for (int r = 0; r < cand.length; r++) {
+                    candidateChoice[i][r] = cachedChoiceInfo(i, cand[r]);
+                }
+            }
+        } else {
+            if (choice == null) choice = CompactMatrix.create(storage, n);
+            for (int i = 0; i < n; i++) {
+                for (int j = choice.isSymmetric() ? i : 0; j < n; j++) {
+                    choice.set(i, j, cachedChoiceInfo(i, j));
+                }
+            }
+        }
+    }
+
+    // After evaporation and a deposit on tour: refreshes only tour's edges, unless the
+    // cache needs a full rebuild (see choiceScale)
+    private void updateChoiceInfo(int[] tour) {
+        boolean cached = candidates != null ? candidateChoice != null : choice != null;
+        if (!cached || tau.isBounded() || tau.version() != choiceVersion
+                || tau.scale() < choiceScale * CHOICE_RESCALE) {
+            updateChoiceInfo();
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            refreshChoiceInfo(tour[i], tour[(i + 1) % n]);
+        }
+    }
+
+    // ACS: pulls the trail of an edge just used back towards tau0
+    private void localPheromoneUpdate(int i, int j) {
+        tau.set(i, j, (1.0 - XI) * tau.get(i, j) + XI * tau0);
+        refreshChoiceInfo(i, j);
+    }
+
+    // Recomputes the cached choice info of the edge (i, j) after its trail changed
+    private void refreshChoiceInfo(int i, int j) {
+        if (candidates != null) {
+            refreshCandidateChoice(i, j);
+            refreshCandidateChoice(j, i);
+        } else {
+            choice.set(i, j, cachedChoiceInfo(i, j));
+            if (!choice.isSymmetric()) choice.set(j, i, cachedChoiceInfo(j, i));
+        }
+    }
+
+    private void refreshCandidateChoice(int i, int j) {
+        int[] cand = candidates[i];
+        for (int r = 0; r < cand.length; r++) {
+            if (cand[r] == j) {
+                candidateChoice[i][r] = cachedChoiceInfo(i, j);
+                return;
             }
         }
     }
 
+    /**
+     * Restricts the choice of the next city to the k nearest unvisited neighbours of the
+     * current city; only when all of them have been visited does the ant fall back to
+     * a scan over every city. Building a tour then costs about O(n * k) instead of O(n^2).
+     * Values of 10 to 30 are typical.
+     */
+    public ACO_TSP withCandidateLists(int k) {
+        if (k <= 0) throw new IllegalArgumentException("candidate list size must be positive: " + k);
+        k = Math.min(k, n - 1);
+        candidates = new int[n][];
+        for (int i = 0; i < n; i++) {
+            candidates[i] = instance.nearestNeighbours(i, k);
+        }
+        choice = null;
+        candidateChoice = null;
+        return this;
+    }
+
+    /**
+     * Improves the constructed tours with 2-opt and Or-opt before the pheromone update.
+     * The moves are searched among the candidate lists (or the 10 nearest neighbours
+     * when candidate lists are off), with don't-look bits. With ALL_ANTS each ant
+     * improves its own tour right after building it, so this runs in parallel too.
+     *
+     * The O(1) move gains assume d(a, b) == d(b, a) and reversing a segment keeps its
+     * length, so the instance must be symmetric.
+     *
+     * @throws IllegalArgumentException if the instance is asymmetric
+     */
+    public ACO_TSP withLocalSearch(LocalSearchScope scope) {
+        if (scope == null) throw new IllegalArgumentException("local search scope must not be null");
+        if (!instance.isSymmetric()) {
+            throw new IllegalArgumentException("local search needs a symmetric instance: " + instance.getName());
+        }
+        this.localSearch = scope;
+        return this;
+    }
+
+    public ACO_TSP withLocalSearch() {
+        return withLocalSearch(LocalSearchScope.ALL_ANTS);
+    }
+
+    private int[][] localSearchNeighbours() {
+        if (candidates != null) return candidates;
+        if (localSearchNeighbours == null) {
+            int k = Math.min(10, n - 1);
+            localSearchNeighbours = new int[n][];
+            for (int i = 0; i < n; i++) localSearchNeighbours[i] = instance.nearestNeighbours(i, k);
+        }
+        return localSearchNeighbours;
+    }
+
+    /**
+     * Builds the ants' tours in parallel. Every ant draws from its own random stream,
+     * seeded from the run seed, the iteration and the ant index only, so for a given
+     * seed the result does not depend on how many threads the pool has. Pheromone is
+     * still updated once per iteration after all tours are built. Pass null to use
+     * per-ant streams on the calling thread.
+     */
+    public ACO_TSP withParallelAnts(ForkJoinPool pool) {
+        this.parallelAnts = true;
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Selects the pheromone update rule.
+     *
+     * MAX_MIN (Stützle and Hoos) keeps every trail in [tau_min, tau_max], where tau_max
+     * = Q / (rho * best length) and tau_min follows from P_BEST = 0.05. The iteration-best
+     * ant deposits at first; the best tour since the last restart takes over
+     * progressively (every 5th, 3rd, 2nd, then every iteration). Trails are reset to
+     * tau_max when that tour has not improved for withStagnationRestart iterations.
+     *
+     * ANT_COLONY_SYSTEM (Dorigo and Gambardella) takes the city with the highest choice
+     * info with probability 0.9 and samples otherwise. It pulls each edge an ant uses
+     * back towards tau0 = Q / (n * L_nn), and only the best-so-far tour gets the global
+     * update. Because of the local update, ants build their tours one after another
+     * even with withParallelAnts.
+     *
+     * Both start every solve() from their own initial trail, derived from a
+     * nearest-neighbour tour.
+     *
+     * MAX_MIN's bounds change every iteration, so it recomputes the choice info of every
+     * edge each iteration: O(n^2), or O(n * k) with candidate lists. The other variants
+     * only refresh the edges whose trail changed.
+     */
+    public ACO_TSP withVariant(Variant variant) {
+        if (variant == null) throw new IllegalArgumentException("variant must not be null");
+        this.variant = variant;
+        return this;
+    }
+
+    /** MAX_MIN only: restart after this many iterations without a better tour (default 100). */
+    public ACO_TSP withStagnationRestart(int iterations) {
+        if (iterations <= 0) throw new IllegalArgumentException("restart interval must be positive: " + iterations);
+        this.restartAfter = iterations;
+        return this;
+    }
+
+    // Length of the greedy nearest-neighbour tour from city 0, the usual trail scale estimate
+    private double nearestNeighbourTourLength() {
+        boolean[] visited = new boolean[n];
+        int current = 0;
+        visited[0] = true;
+        double length = 0.0;
+        for (int step = 1; step < n; step++) {
+            int next = -1;
+            if (candidates != null) {
+                for (int c : candidates[current]) {
+                    if (!visited[c]) {
+                        next = c;
+                        break;
+                    }
+                }
+            }
+            if (next < 0) {
+                double bestD = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < n; j++) {
+                    if (!visited[j] && instance.distance(current, j) < bestD) {
+                        bestD = instance.distance(current, j);
+                        next = j;
+                    }
+                }
+            }
+            length += instance.distance(current, next);
+            visited[next] = true;
+            current = next;
+        }
+        return length + instance.distance(current, 0);
+    }
+
+    // MMAS bounds for the given best tour length
+    private void setMaxMinBounds(double bestLength) {
+        double tauMax = Q / (rho * bestLength);
+        double pDec = Math.pow(P_BEST, 1.0 / n);
+        double avg = n / 2.0;
+        double tauMin = avg > 1.0 ? tauMax * (1.0 - pDec) / ((avg - 1.0) * pDec) : tauMax;
+        tau.setBounds(Math.min(tauMin, tauMax), tauMax);
+    }
+
     public Result solve() {
         if (verbose) {
             System.out.println("=== Ant Colony Optimization (ACO) for TSP ===");
@@ -95,12 +423,26 @@ public class ACO_TSP {
             System.out.println("  Beta (heuristic importance): " + beta);
             System.out.println("  Rho (evaporation rate): " + rho);
             System.out.println("  Q (pheromone deposit constant): " + Q);
+            if (parallelAnts) {
+                System.out.println("  Construction: parallel (" + (pool != null ? pool.getParallelism() + " threads" : "caller thread") + ")");
+            }
+            if (storage != Storage.DENSE) {
+                System.out.println("  Storage: " + storage);
+            }
+            if (candidates != null) {
+                System.out.println("  Candidate list size: " + (n > 1 ? candidates[0].length : 0));
+            }
+            if (localSearch != null) {
+                System.out.println("  Local search: 2-opt + Or-opt (" + localSearch + ")");
+            }
+            if (variant != Variant.ANT_SYSTEM) {
+                System.out.println("  Variant: " + variant);
+            }
             System.out.println("----------------------------------------");
         }
 
-        int[] globalBestTour = null;
-        double globalBestLen = Double.POSITIVE_INFINITY;
         List<IterationLog> history = new ArrayList<>();
+        Colony colony = newColony();
 
         if (verbose) {
             System.out.println("\nStarting optimization...\n");
@@ -110,124 +452,363 @@ public class ACO_TSP {
         }
 
         for (int iter = 0; iter < iterations; iter++) {
-            List<int[]> tours = new ArrayList<>(antCount);
-            List<Double> lens = new ArrayList<>(antCount);
+            colony.iterate(completedIterations + iter);
+
+            double globalBestLen = colony.bestLength;
+            double avgLen = colony.avgLength;
+            double minLen = colony.minLength;
+            double maxLen = colony.maxLength;
+            double avgPheromone = tau.average();
+
+            // Log iteration
+            IterationLog log = new IterationLog(iter + 1, globalBestLen, avgLen, minLen, maxLen, avgPheromone);
+            history.add(log);
+
+            // Print progress
+            if (verbose && ((iter + 1) % logInterval == 0 || iter == 0 || iter == iterations - 1)) {
+                System.out.println(String.format("%-10d %-15.2f %-15.2f %-15.2f %-15.2f %-15.4f",
+                    iter + 1, globalBestLen, avgLen, minLen, maxLen, avgPheromone));
+            }
+        }
+
+        if (verbose) {
+            System.out.println("--------------------------------------------------------------------------------");
+            System.out.println("\nOptimization Complete!");
+            System.out.println("Final Best Tour Length: " + colony.bestLength);
+            System.out.println("Final Best Tour: " + Arrays.toString(colony.bestTour));
+            if (variant == Variant.MAX_MIN) {
+                System.out.println("Restarts: " + colony.restarts);
+            }
+        }
+
+        completedIterations += iterations;
+        return new Result(colony.bestTour, colony.bestLength, history);
+    }
+
+    Colony newColony() {
+        return new Colony();
+    }
+
+    /**
+     * State of one run: the ants, the best tour so far and the statistics of the last
+     * iteration. All buffers are allocated up front, so iterate() does not allocate.
+     */
+    final class Colony {
+        final Ant[] ants = new Ant[antCount];
+        final int[] bestTour = new int[n];
+        double bestLength = Double.POSITIVE_INFINITY;
+
+        // Statistics of the last iteration
+        int iterationBest;
+        double avgLength;
+        double minLength;
+        double maxLength;
+
+        private final Parallel.BlockBody buildBlock = this::buildBlock;
+        private int iteration;
+        private final LocalSearch bestSearch;  // ITERATION_BEST only
 
+        // MAX_MIN: best tour since the last restart, and when it last improved
+        private final int[] restartBestTour;
+        private double restartBestLength = Double.POSITIVE_INFINITY;
+        private int restartIteration;
+        private int lastImprovement;
+        int restarts;
+
+        Colony() {
+            int[][] neighbours = localSearch != null ? localSearchNeighbours() : null;
+            for (int k = 0; k < antCount; k++) {
+                ants[k] = new Ant();
+                if (localSearch == LocalSearchScope.ALL_ANTS) ants[k].search = new LocalSearch(instance, neighbours);
+            }
+            bestSearch = localSearch == LocalSearchScope.ITERATION_BEST ? new LocalSearch(instance, neighbours) : null;
+            restartBestTour = variant == Variant.MAX_MIN ? new int[n] : null;
+            restartIteration = completedIterations;
+            lastImprovement = completedIterations;
+
+            // A resumed run keeps its trails and starts from the saved best tour
+            boolean resumed = resumedTour != null;
+            if (resumed) {
+                System.arraycopy(resumedTour, 0, bestTour, 0, n);
+                bestLength = resumedLength;
+                resumedTour = null;
+            }
+            if (variant == Variant.MAX_MIN) {
+                double nn = nearestNeighbourTourLength();
+                setMaxMinBounds(resumed ? bestLength : nn);
+                if (resumed) {
+                    // The deposit schedule starts over, from the saved best tour
+                    System.arraycopy(bestTour, 0, restartBestTour, 0, n);
+                    restartBestLength = bestLength;
+                } else {
+                    tau.fill(Q / (rho * nn));
+                }
+            } else {
+                tau.clearBounds();  // left by an earlier MAX_MIN solve
+                if (variant == Variant.ANT_COLONY_SYSTEM) {
+                    tau0 = Q / (n * nearestNeighbourTourLength());
+                    if (!resumed) tau.fill(tau0);
+                }
+            }
+            updateChoiceInfo();
+        }
+
+        void iterate(int iteration) {
             // Each ant builds a tour
+            if (parallelAnts) {
+                this.iteration = iteration;
+                if (variant == Variant.ANT_COLONY_SYSTEM) {
+                    buildBlock(0, 0, antCount);  // the local update makes ants depend on each other
+                } else {
+                    Parallel.forBlocks(pool, antCount, buildBlock);
+                }
+            } else {
+                // One shared random sequence, in ant order
+                for (Ant ant : ants) {
+                    ant.build(ant.rng.nextInt(n));
+                    if (localSearch == LocalSearchScope.ALL_ANTS) ant.improve(ant.search);
+                }
+            }
+            if (localSearch == LocalSearchScope.ITERATION_BEST) {
+                int best = 0;
+                for (int k = 1; k < antCount; k++) if (ants[k].length < ants[best].length) best = k;
+                ants[best].improve(bestSearch);
+            }
+
+            int best = 0;
+            double sum = 0.0;
+            double max = Double.NEGATIVE_INFINITY;
             for (int k = 0; k < antCount; k++) {
-                int start = rnd.nextInt(n);
-                int[] tour = buildTour(start);
-                double len = tourLength(tour);
-                tours.add(tour);
-                lens.add(len);
+                double len = ants[k].length;
+                sum += len;
+                if (len < ants[best].length) best = k;
+                if (len > max) max = len;
 
                 // Update global best
-                if (len < globalBestLen) {
-                    globalBestLen = len;
-                    globalBestTour = tour.clone();
+                if (len < bestLength) {
+                    bestLength = len;
+                    System.arraycopy(ants[k].tour, 0, bestTour, 0, n);
                 }
             }
+            iterationBest = best;
+            avgLength = sum / antCount;
+            minLength = ants[best].length;
+            maxLength = max;
 
-            // Evaporate pheromone
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    tau[i][j] *= (1.0 - rho);
-                }
+            switch (variant) {
+                case MAX_MIN:
+                    maxMinUpdate(iteration);
+                    break;
+                case ANT_COLONY_SYSTEM:
+                    antColonySystemUpdate();
+                    return;  // only the best tour's edges changed, and their choice info is refreshed
+                default:
+                    // Evaporate pheromone (O(1): only the global scale changes)
+                    tau.evaporate(1.0 - rho);
+                    // Deposit pheromone on best tour of this iteration
+                    deposit(ants[best].tour, Q / minLength);
+                    updateChoiceInfo(ants[best].tour);
+                    return;
             }
+            updateChoiceInfo();
+        }
 
-            // Deposit pheromone on best tour of this iteration
-            int bestIdx = argMin(lens);
-            int[] bestTour = tours.get(bestIdx);
-            double bestLen = lens.get(bestIdx);
-            double deposit = Q / bestLen;
+        private void deposit(int[] tour, double amount) {
             for (int i = 0; i < n; i++) {
-                int a = bestTour[i];
-                int b = bestTour[(i + 1) % n];
-                tau[a][b] += deposit;
-                tau[b][a] += deposit;
+                tau.deposit(tour[i], tour[(i + 1) % n], amount);
             }
+        }
 
-            // Calculate statistics
-            double avgLen = lens.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            double minLen = Collections.min(lens);
-            double maxLen = Collections.max(lens);
-            double avgPheromone = calculateAvgPheromone();
+        private void maxMinUpdate(int iteration) {
+            if (minLength < restartBestLength) {
+                restartBestLength = minLength;
+                System.arraycopy(ants[iterationBest].tour, 0, restartBestTour, 0, n);
+                lastImprovement = iteration;
+            }
+            setMaxMinBounds(bestLength);
+            tau.evaporate(1.0 - rho);
 
-            // Log iteration
-            IterationLog log = new IterationLog(iter + 1, globalBestLen, avgLen, minLen, maxLen, avgPheromone);
-            history.add(log);
+            // The restart-best tour deposits ever more often as the run converges
+            int age = iteration - restartIteration;
+            int period = age < 25 ? 0 : age < 75 ? 5 : age < 125 ? 3 : age < 250 ? 2 : 1;
+            if (period > 0 && age % period == 0) {
+                deposit(restartBestTour, Q / restartBestLength);
+            } else {
+                deposit(ants[iterationBest].tour, Q / minLength);
+            }
 
-            // Print progress
-            if (verbose && ((iter + 1) % logInterval == 0 || iter == 0 || iter == iterations - 1)) {
-                System.out.println(String.format("%-10d %-15.2f %-15.2f %-15.2f %-15.2f %-15.4f",
-                    iter + 1, globalBestLen, avgLen, minLen, maxLen, avgPheromone));
+            if (iteration - lastImprovement >= restartAfter) {
+                tau.fill(Q / (rho * bestLength));
+                restartBestLength = Double.POSITIVE_INFINITY;
+                restartIteration = iteration + 1;
+                lastImprovement = iteration + 1;
+                restarts++;
             }
         }
 
-        if (verbose) {
-            System.out.println("--------------------------------------------------------------------------------");
-            System.out.println("\nOptimization Complete!");
-            System.out.println("Final Best Tour Length: " + globalBestLen);
-            System.out.println("Final Best Tour: " + Arrays.toString(globalBestTour));
+        // Global update on the best-so-far tour's edges only: tau = (1 - rho) tau + rho Q / L
+        private void antColonySystemUpdate() {
+            double deposit = rho * Q / bestLength;
+            for (int i = 0; i < n; i++) {
+                int a = bestTour[i];
+                int b = bestTour[(i + 1) % n];
+                tau.set(a, b, (1.0 - rho) * tau.get(a, b) + deposit);
+                refreshChoiceInfo(a, b);
+            }
         }
 
-        return new Result(globalBestTour, globalBestLen, history);
+        private void buildBlock(int block, int from, int to) {
+            for (int k = from; k < to; k++) {
+                ants[k].stream.setSeed(streamSeed(iteration, k));
+                ants[k].build(ants[k].rng.nextInt(n));
+                if (localSearch == LocalSearchScope.ALL_ANTS) ants[k].improve(ants[k].search);
+            }
+        }
     }
 
-    private double calculateAvgPheromone() {
-        double sum = 0.0;
-        int count = 0;
-        for (int i = 0; i < n; i++) {
+    // Seed of ant k's stream in the given iteration (SplitMix64 finaliser); it depends on
+    // nothing else, so tours do not depend on scheduling
+    private long streamSeed(int iteration, int k) {
+        long z = seed + 0x9E3779B97F4A7C15L * ((long) iteration * antCount + k + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** One ant's tour and scratch buffers, reused every iteration. */
+    final class Ant {
+        final int[] tour = new int[n];
+        double length;
+        private final int[] unvisited = new int[n];  // cities not yet in the tour are unvisited[0, remaining)
+        private final int[] slot = new int[n];       // index of each city in unvisited, -1 once visited
+        private int remaining;
+        private final double[] probs = new double[n];
+        private final FastRandom stream;  // own stream in parallel mode, else null
+        private final RandomGenerator rng;
+        private LocalSearch search;  // set by Colony with LocalSearchScope.ALL_ANTS
+
+        Ant() {
+            stream = parallelAnts ? new FastRandom(seed) : null;
+            rng = parallelAnts ? stream : rnd;
+        }
+
+        void build(int start) {
             for (int j = 0; j < n; j++) {
-                if (i != j) {
-                    sum += tau[i][j];
-                    count++;
-                }
+                unvisited[j] = j;
+                slot[j] = j;
+            }
+            remaining = n;
+            tour[0] = start;
+            visit(start);
+
+            boolean localUpdate = variant == Variant.ANT_COLONY_SYSTEM;
+            for (int step = 1; step < n; step++) {
+                int i = tour[step - 1];
+                int j = selectNextCity(i);
+                tour[step] = j;
+                visit(j);
+                if (localUpdate) localPheromoneUpdate(i, j);
             }
+            if (localUpdate && n > 1) localPheromoneUpdate(tour[n - 1], start);
+            length = tourLength(tour);
         }
-        return count > 0 ? sum / count : 0.0;
-    }
 
-    private int[] buildTour(int start) {
-        boolean[] visited = new boolean[n];
-        int[] tour = new int[n];
-        tour[0] = start;
-        visited[start] = true;
+        void improve(LocalSearch search) {
+            length = search.improve(tour, length);
+        }
 
-        for (int step = 1; step < n; step++) {
-            int i = tour[step - 1];
-            int j = selectNextCity(i, visited);
-            tour[step] = j;
-            visited[j] = true;
+        // O(1) removal of city j: the last unvisited city takes its slot
+        private void visit(int j) {
+            int q = slot[j];
+            int last = unvisited[--remaining];
+            unvisited[q] = last;
+            slot[last] = q;
+            slot[j] = -1;
         }
-        return tour;
-    }
 
-    private int selectNextCity(int current, boolean[] visited) {
-        double[] probs = new double[n];
-        double sum = 0.0;
-        for (int j = 0; j < n; j++) {
-            if (!visited[j]) {
-                double val = Math.pow(tau[current][j], alpha) * Math.pow(eta[current][j], beta);
-                probs[j] = val;
-                sum += val;
-            } else {
-                probs[j] = 0.0;
+        private int selectNextCity(int current) {
+            if (variant == Variant.ANT_COLONY_SYSTEM && rng.nextDouble() < Q0) {
+                return bestNextCity(current);
+            }
+            if (candidates != null) {
+                int[] cand = candidates[current];
+                double[] weights = candidateChoice[current];
+                double sum = 0.0;
+                for (int r = 0; r < cand.length; r++) {
+                    int j = cand[r];
+                    if (slot[j] >= 0) {
+                        double val = weights[r];
+                        probs[r] = val;
+                        sum += val;
+                    } else {
+                        probs[r] = 0.0;
+                    }
+                }
+                if (sum > 0.0) {
+                    double r = rng.nextDouble() * sum;
+                    double c = 0.0;
+                    int last = -1;
+                    for (int q = 0; q < cand.length; q++) {
+                        if (probs[q] == 0.0) continue;
+                        c += probs[q];
+                        last = q;
+                        if (r <= c) return cand[q];
+                    }
+                    return cand[last];
+                }
+                // Every candidate has been visited: fall through to the full scan
             }
+            return selectFromAll(current);
         }
-        if (sum == 0.0) {
-            List<Integer> choices = new ArrayList<>();
-            for (int j = 0; j < n; j++) if (!visited[j]) choices.add(j);
-            return choices.get(rnd.nextInt(choices.size()));
+
+        // ACS exploitation: the unvisited city with the highest choice info
+        private int bestNextCity(int current) {
+            int best = -1;
+            double bestVal = -1.0;
+            if (candidates != null) {
+                int[] cand = candidates[current];
+                double[] weights = candidateChoice[current];
+                for (int r = 0; r < cand.length; r++) {
+                    if (slot[cand[r]] >= 0 && weights[r] > bestVal) {
+                        bestVal = weights[r];
+                        best = cand[r];
+                    }
+                }
+                if (best >= 0) return best;
+            }
+            for (int q = 0; q < remaining; q++) {
+                int j = unvisited[q];
+                double val = choice != null ? choice.get(current, j) : choiceInfo(current, j);
+                if (val > bestVal) {
+                    bestVal = val;
+                    best = j;
+                }
+            }
+            return best;
         }
-        double r = rnd.nextDouble() * sum;
-        double c = 0.0;
-        for (int j = 0; j < n; j++) {
-            c += probs[j];
-            if (r <= c) return j;
+
+        private int selectFromAll(int current) {
+            // With candidate lists only the candidates' choice info is cached
+            CompactMatrix weights = choice;
+            double sum = 0.0;
+            for (int q = 0; q < remaining; q++) {
+                int j = unvisited[q];
+                double val = weights != null ? weights.get(current, j) : choiceInfo(current, j);
+                probs[q] = val;
+                sum += val;
+            }
+            if (sum == 0.0) {
+                return unvisited[rng.nextInt(remaining)];
+            }
+            double r = rng.nextDouble() * sum;
+            double c = 0.0;
+            for (int q = 0; q < remaining; q++) {
+                c += probs[q];
+                if (r <= c) return unvisited[q];
+            }
+            for (int q = remaining - 1; q >= 0; q--) if (probs[q] > 0) return unvisited[q];
+            throw new IllegalStateException("No next city found.");
         }
-        for (int j = n - 1; j >= 0; j--) if (probs[j] > 0) return j;
-        throw new IllegalStateException("No next city found.");
     }
 
     private double tourLength(int[] tour) {
@@ -235,17 +816,11 @@ public class ACO_TSP {
         for (int i = 0; i < n; i++) {
             int a = tour[i];
             int b = tour[(i + 1) % n];
-            len += dist[a][b];
+            len += instance.distance(a, b);
         }
         return len;
     }
 
-    private int argMin(List<Double> vals) {
-        int idx = 0;
-        for (int i = 1; i < vals.size(); i++) if (vals.get(i) < vals.get(idx)) idx = i;
-        return idx;
-    }
-
     public void exportToCSV(Result result, String filename) throws IOException {
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
             // Write header
@@ -260,6 +835,168 @@ public class ACO_TSP {
         }
     }
 
+    // ============================================================================
+    // CHECKPOINTS
+    // ============================================================================
+    //
+    // Layout (big-endian, see MappedFile): int magic "ACOK", int version, int n,
+    // int flags (1 = city coordinates follow), long random state, long completed
+    // iterations, double best length, int[n] best tour (padded to 8 bytes), then when
+    // flagged double[n] x and double[n] y, then the pheromone's upper triangle with the
+    // diagonal as doubles, row by row. Every update here is symmetric, so that is all of it.
+
+    private static final int CHECKPOINT_MAGIC = 0x41434F4B;
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int CHECKPOINT_HEADER = 40;
+
+    /**
+     * Saves the solver state after solve(): the pheromone trails, the result's best tour,
+     * the random state and the number of iterations run. The file is written through a
+     * memory mapping, so large matrices are not copied through the heap.
+     */
+    public void writeCheckpoint(Result result, Path file) throws IOException {
+        boolean coordinates = instance.hasCoordinates();
+        long tourBytes = (4L * n + 7) & ~7L;
+        long coordOffset = CHECKPOINT_HEADER + tourBytes;
+        long tauOffset = coordOffset + (coordinates ? 16L * n : 0);
+        try (MappedFile out = MappedFile.create(file, tauOffset + 8L * n * (n + 1) / 2)) {
+            out.putInt(0, CHECKPOINT_MAGIC);
+            out.putInt(4, CHECKPOINT_VERSION);
+            out.putInt(8, n);
+            out.putInt(12, coordinates ? 1 : 0);
+            out.putLong(16, rnd.state());
+            out.putLong(24, completedIterations);
+            out.putDouble(32, result.bestLength);
+            for (int i = 0; i < n; i++) out.putInt(CHECKPOINT_HEADER + 4L * i, result.bestTour[i]);
+            if (coordinates) {
+                for (int i = 0; i < n; i++) {
+                    out.putDouble(coordOffset + 8L * i, instance.x(i));
+                    out.putDouble(coordOffset + 8L * (n + i), instance.y(i));
+                }
+            }
+            long offset = tauOffset;
+            for (int i = 0; i < n; i++) {
+                for (int j = i; j < n; j++) {
+                    out.putDouble(offset, tau.get(i, j));
+                    offset += 8;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts the next solve() from a checkpoint written by writeCheckpoint.
+     *
+     * For the same cities this resumes the saved run: trails, best tour, random state and
+     * iteration count are restored, so ANT_SYSTEM and ANT_COLONY_SYSTEM continue exactly
+     * as an uninterrupted run would. MAX_MIN starts its deposit schedule and stagnation
+     * count over, with the saved best tour as the restart-best.
+     *
+     * When cities were added or removed, cities are matched by their coordinates, which
+     * both instances then need. Pairs of surviving cities keep their trail and pairs with
+     * a new city start at the saved average. The saved best tour, minus the removed
+     * cities and with each new city inserted where it adds the least length, becomes the
+     * starting best tour. Such a warm start usually reaches the old quality in a fraction
+     * of a cold run's iterations.
+     */
+    public ACO_TSP resumeFrom(Path file) throws IOException {
+        MappedFile in = MappedFile.open(file);
+        if (in.size() < CHECKPOINT_HEADER || in.getInt(0) != CHECKPOINT_MAGIC) {
+            throw new IOException("Not an ACO checkpoint: " + file);
+        }
+        int version = in.getInt(4);
+        if (version != CHECKPOINT_VERSION) throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+        int m = in.getInt(8);
+        boolean coordinates = (in.getInt(12) & 1) != 0;
+        long tourBytes = (4L * m + 7) & ~7L;
+        long coordOffset = CHECKPOINT_HEADER + tourBytes;
+        long tauOffset = coordOffset + (coordinates ? 16L * m : 0);
+        if (in.size() < tauOffset + 8L * m * (m + 1) / 2) throw new IOException("Truncated checkpoint: " + file);
+
+        // Saved index of each city, or -1 for a new one
+        int[] saved = new int[n];
+        if (coordinates && instance.hasCoordinates()) {
+            Map<String, Integer> byCoordinates = new HashMap<>();
+            for (int c = 0; c < m; c++) {
+                byCoordinates.put(in.getDouble(coordOffset + 8L * c) + "," + in.getDouble(coordOffset + 8L * (m + c)), c);
+            }
+            for (int i = 0; i < n; i++) {
+                saved[i] = byCoordinates.getOrDefault(instance.x(i) + "," + instance.y(i), -1);
+            }
+        } else if (m == n) {
+            for (int i = 0; i < n; i++) saved[i] = i;
+        } else {
+            throw new IllegalArgumentException("Checkpoint has " + m + " cities and this instance " + n
+                    + "; matching them needs coordinates in both");
+        }
+        long[] rowStart = TSPInstance.longRowStarts(m);
+
+        double sum = 0.0;
+        for (int a = 0; a < m; a++) {
+            for (int b = a + 1; b < m; b++) sum += in.getDouble(tauOffset + 8L * (rowStart[a] + b));
+        }
+        double average = m > 1 ? sum / ((long) m * (m - 1) / 2) : 1.0;
+        tau.fill(average);
+        for (int i = 0; i < n; i++) {
+            if (saved[i] < 0) continue;
+            for (int j = i + 1; j < n; j++) {
+                if (saved[j] < 0) continue;
+                int a = Math.min(saved[i], saved[j]);
+                int b = Math.max(saved[i], saved[j]);
+                tau.set(i, j, in.getDouble(tauOffset + 8L * (rowStart[a] + b)));
+            }
+        }
+
+        rnd.setState(in.getLong(16));
+        completedIterations = (int) in.getLong(24);
+        boolean sameCities = m == n;
+        for (int i = 0; i < n && sameCities; i++) sameCities = saved[i] == i;
+        if (sameCities) {
+            resumedTour = new int[n];
+            for (int i = 0; i < n; i++) resumedTour[i] = in.getInt(CHECKPOINT_HEADER + 4L * i);
+            resumedLength = in.getDouble(32);
+        } else {
+            int[] newIndex = new int[m];
+            Arrays.fill(newIndex, -1);
+            for (int i = 0; i < n; i++) if (saved[i] >= 0) newIndex[saved[i]] = i;
+            int[] tour = new int[n];
+            int size = 0;
+            for (int p = 0; p < m; p++) {
+                int c = newIndex[in.getInt(CHECKPOINT_HEADER + 4L * p)];
+                if (c >= 0) tour[size++] = c;
+            }
+            for (int i = 0; i < n; i++) {
+                if (saved[i] < 0) size = cheapestInsertion(tour, size, i);
+            }
+            resumedTour = size == n ? tour : null;
+            resumedLength = resumedTour != null ? tourLength(resumedTour) : Double.POSITIVE_INFINITY;
+        }
+        if (choice != null || candidateChoice != null) updateChoiceInfo();
+        return this;
+    }
+
+    // Inserts city c into tour[0, size) between the two consecutive cities where it adds the least
+    private int cheapestInsertion(int[] tour, int size, int c) {
+        if (size < 2) {
+            tour[size] = c;
+            return size + 1;
+        }
+        int bestPos = 0;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int p = 0; p < size; p++) {
+            int a = tour[p];
+            int b = tour[p + 1 == size ? 0 : p + 1];
+            double cost = instance.distance(a, c) + instance.distance(c, b) - instance.distance(a, b);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestPos = p + 1;
+            }
+        }
+        System.arraycopy(tour, bestPos, tour, bestPos + 1, size - bestPos);
+        tour[bestPos] = c;
+        return size + 1;
+    }
+
     public static void main(String[] args) {
         // ========================================================================
         // CONFIGURATION - TSP Problem Setup
@@ -291,7 +1028,18 @@ public class ACO_TSP {
         // ========================================================================
         ACO_TSP aco = new ACO_TSP(distanceMatrix, antCount, iterations,
                                   alpha, beta, rho, Q, seed);
+        // Optional: only consider the k nearest unvisited cities (for instances with thousands of cities)
+        // aco.withCandidateLists(15);
+        // Optional: improve every ant's tour with 2-opt + Or-opt before the pheromone update
+        // aco.withLocalSearch();
+        // Optional: MAX-MIN Ant System or Ant Colony System instead of the basic update
+        // aco.withVariant(Variant.MAX_MIN);
+        // Optional: solve a TSPLIB file instead; coordinate instances compute distances on demand
+        // aco = new ACO_TSP(TSPInstance.load(Paths.get("berlin52.tsp")), antCount, iterations,
+        //                   alpha, beta, rho, Q, seed, true, 10, Storage.TRIANGULAR_FLOAT).withCandidateLists(15);
         Result r = aco.solve();
+        // Optional: save the trails for a later run, which continues with .resumeFrom(Paths.get("tsp_4city.ckpt"))
+        // aco.writeCheckpoint(r, Paths.get("tsp_4city.ckpt"));
         
         // Export to CSV
         try {
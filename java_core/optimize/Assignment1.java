@@ -1,6 +1,4 @@
 package optimize;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -21,26 +19,22 @@ public class Assignment1 {
         TriangularMF hot = new TriangularMF(25, 40, 40);
         
         // Create common universe for operations
-        List<Double> universe = createUniverse(10, 40, 50);
+        Universe universe = new Universe(10, 40, 50);
         
         // Evaluate membership functions over the universe
-        List<Double> coldValues = new ArrayList<>();
-        List<Double> comfortableValues = new ArrayList<>();
-        List<Double> hotValues = new ArrayList<>();
+        FuzzySet coldValues = FuzzySet.of(universe, cold::getMembership);
+        FuzzySet comfortableValues = FuzzySet.of(universe, comfortable::getMembership);
+        FuzzySet hotValues = FuzzySet.of(universe, hot::getMembership);
         
-        for (double x : universe) {
-            coldValues.add(cold.getMembership(x));
-            comfortableValues.add(comfortable.getMembership(x));
-            hotValues.add(hot.getMembership(x));
-        }
-        
-        // Perform fuzzy operations on entire sets
-        List<Double> unionColdHot = union(coldValues, hotValues);
-        List<Double> intersectionColdComfortable = intersection(coldValues, comfortableValues);
-        List<Double> complementComfortable = complement(comfortableValues);
-        List<Double> algebraicProduct = algebraicProduct(coldValues, comfortableValues);
-        List<Double> algebraicSum = algebraicSum(coldValues, comfortableValues);
-        List<Double> difference = difference(hotValues, comfortableValues);
+        // Perform fuzzy operations on entire sets (each into its own result set)
+        FuzzySet unionColdHot = coldValues.union(hotValues, new FuzzySet(universe));
+        FuzzySet intersectionColdComfortable = coldValues.intersection(comfortableValues, new FuzzySet(universe));
+        FuzzySet complementComfortable = comfortableValues.complement(new FuzzySet(universe));
+        FuzzySet algebraicProduct = coldValues.algebraicProduct(comfortableValues, new FuzzySet(universe));
+        FuzzySet algebraicSum = coldValues.algebraicSum(comfortableValues, new FuzzySet(universe));
+        FuzzySet difference = hotValues.difference(comfortableValues, new FuzzySet(universe));
+        // Optional: chain operations in place on one set, e.g. (Cold ∪ Hot)'
+        // FuzzySet notExtreme = coldValues.copy().union(hotValues).complement();
         
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter temperature (10-40°C): ");
@@ -53,7 +47,7 @@ public class Assignment1 {
         }
         
         // Find index in universe
-        int index = findClosestIndex(universe, temp);
+        int index = universe.indexOf(temp);
         
         // Calculate membership values
         double coldMem = cold.getMembership(temp);
@@ -95,81 +89,6 @@ public class Assignment1 {
         
         scanner.close();
     }
-    
-    // Create universe of discourse
-    private static List<Double> createUniverse(double lower, double upper, int resolution) {
-        List<Double> universe = new ArrayList<>();
-        double step = (upper - lower) / (resolution - 1);
-        for (int i = 0; i < resolution; i++) {
-            universe.add(lower + i * step);
-        }
-        return universe;
-    }
-    
-    // Find closest index in universe
-    private static int findClosestIndex(List<Double> universe, double value) {
-        int closestIndex = 0;
-        double minDiff = Double.MAX_VALUE;
-        for (int i = 0; i < universe.size(); i++) {
-            double diff = Math.abs(universe.get(i) - value);
-            if (diff < minDiff) {
-                minDiff = diff;
-                closestIndex = i;
-            }
-        }
-        return closestIndex;
-    }
-    
-    // Fuzzy set operations
-    private static List<Double> union(List<Double> setA, List<Double> setB) {
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < setA.size(); i++) {
-            result.add(Math.max(setA.get(i), setB.get(i)));
-        }
-        return result;
-    }
-    
-    private static List<Double> intersection(List<Double> setA, List<Double> setB) {
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < setA.size(); i++) {
-            result.add(Math.min(setA.get(i), setB.get(i)));
-        }
-        return result;
-    }
-    
-    private static List<Double> complement(List<Double> set) {
-        List<Double> result = new ArrayList<>();
-        for (Double value : set) {
-            result.add(1 - value);
-        }
-        return result;
-    }
-    
-    private static List<Double> algebraicProduct(List<Double> setA, List<Double> setB) {
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < setA.size(); i++) {
-            result.add(setA.get(i) * setB.get(i));
-        }
-        return result;
-    }
-    
-    private static List<Double> algebraicSum(List<Double> setA, List<Double> setB) {
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < setA.size(); i++) {
-            double a = setA.get(i);
-            double b = setB.get(i);
-            result.add(a + b - a * b);
-        }
-        return result;
-    }
-    
-    private static List<Double> difference(List<Double> setA, List<Double> setB) {
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < setA.size(); i++) {
-            result.add(Math.max(setA.get(i) - setB.get(i), 0));
-        }
-        return result;
-    }
 }
 
 // Simple Triangular Membership Function
@@ -1,4 +1,10 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Assignment 2: Fuzzy Relations
@@ -82,46 +88,47 @@ public class Assignment2 {
         System.out.println("\n--- Fuzzy Rules Evaluation (Mamdani Inference) ---");
         System.out.println("Using MIN for AND operation, MAX for OR operation\n");
         
-        // Rule 1: IF temp is cold AND humidity is dry THEN comfort is uncomfortable
-        double rule1 = Math.min(coldMem, dryMem);
-        System.out.printf("Rule 1: IF temp=cold AND humidity=dry THEN uncomfortable: %.4f\n", rule1);
+        LinguisticVariable temp = new LinguisticVariable("temp")
+                .addTerm("cold", coldTemp)
+                .addTerm("comfortable", comfortableTemp)
+                .addTerm("hot", hotTemp);
+        LinguisticVariable hum = new LinguisticVariable("humidity")
+                .addTerm("dry", dryHumidity)
+                .addTerm("comfortable", comfortableHumidity)
+                .addTerm("humid", humidHumidity);
+        LinguisticVariable comfort = new LinguisticVariable("comfort")
+                .addTerm("uncomfortable", uncomfortable)
+                .addTerm("neutral", neutral)
+                .addTerm("comfortable", comfortable);
         
-        // Rule 2: IF temp is cold AND humidity is comfortable THEN comfort is neutral
-        double rule2 = Math.min(coldMem, comfHumMem);
-        System.out.printf("Rule 2: IF temp=cold AND humidity=comfortable THEN neutral: %.4f\n", rule2);
+        FuzzyRuleBase rules = new FuzzyRuleBase(comfort, temp, hum)
+                .addRule("IF temp IS cold AND humidity IS dry THEN comfort IS uncomfortable")
+                .addRule("IF temp IS cold AND humidity IS comfortable THEN comfort IS neutral")
+                .addRule("IF temp IS cold AND humidity IS humid THEN comfort IS uncomfortable")
+                .addRule("IF temp IS comfortable AND humidity IS dry THEN comfort IS neutral")
+                .addRule("IF temp IS comfortable AND humidity IS comfortable THEN comfort IS comfortable")
+                .addRule("IF temp IS comfortable AND humidity IS humid THEN comfort IS neutral")
+                .addRule("IF temp IS hot AND humidity IS dry THEN comfort IS uncomfortable")
+                .addRule("IF temp IS hot AND humidity IS comfortable THEN comfort IS neutral")
+                .addRule("IF temp IS hot AND humidity IS humid THEN comfort IS uncomfortable");
+        // Optional: product AND / probabilistic OR instead of MIN / MAX
+        // rules.withTNorm(TNorm.PRODUCT);
+        double[] levels = rules.evaluate(temperature, humidity);
         
-        // Rule 3: IF temp is cold AND humidity is humid THEN comfort is uncomfortable
-        double rule3 = Math.min(coldMem, humidMem);
-        System.out.printf("Rule 3: IF temp=cold AND humidity=humid THEN uncomfortable: %.4f\n", rule3);
+        System.out.printf("Rule 1: IF temp=cold AND humidity=dry THEN uncomfortable: %.4f\n", rules.ruleStrength(0));
+        System.out.printf("Rule 2: IF temp=cold AND humidity=comfortable THEN neutral: %.4f\n", rules.ruleStrength(1));
+        System.out.printf("Rule 3: IF temp=cold AND humidity=humid THEN uncomfortable: %.4f\n", rules.ruleStrength(2));
+        System.out.printf("Rule 4: IF temp=comfortable AND humidity=dry THEN neutral: %.4f\n", rules.ruleStrength(3));
+        System.out.printf("Rule 5: IF temp=comfortable AND humidity=comfortable THEN comfortable: %.4f\n", rules.ruleStrength(4));
+        System.out.printf("Rule 6: IF temp=comfortable AND humidity=humid THEN neutral: %.4f\n", rules.ruleStrength(5));
+        System.out.printf("Rule 7: IF temp=hot AND humidity=dry THEN uncomfortable: %.4f\n", rules.ruleStrength(6));
+        System.out.printf("Rule 8: IF temp=hot AND humidity=comfortable THEN neutral: %.4f\n", rules.ruleStrength(7));
+        System.out.printf("Rule 9: IF temp=hot AND humidity=humid THEN uncomfortable: %.4f\n", rules.ruleStrength(8));
         
-        // Rule 4: IF temp is comfortable AND humidity is dry THEN comfort is neutral
-        double rule4 = Math.min(comfTempMem, dryMem);
-        System.out.printf("Rule 4: IF temp=comfortable AND humidity=dry THEN neutral: %.4f\n", rule4);
-        
-        // Rule 5: IF temp is comfortable AND humidity is comfortable THEN comfort is comfortable
-        double rule5 = Math.min(comfTempMem, comfHumMem);
-        System.out.printf("Rule 5: IF temp=comfortable AND humidity=comfortable THEN comfortable: %.4f\n", rule5);
-        
-        // Rule 6: IF temp is comfortable AND humidity is humid THEN comfort is neutral
-        double rule6 = Math.min(comfTempMem, humidMem);
-        System.out.printf("Rule 6: IF temp=comfortable AND humidity=humid THEN neutral: %.4f\n", rule6);
-        
-        // Rule 7: IF temp is hot AND humidity is dry THEN comfort is uncomfortable
-        double rule7 = Math.min(hotMem, dryMem);
-        System.out.printf("Rule 7: IF temp=hot AND humidity=dry THEN uncomfortable: %.4f\n", rule7);
-        
-        // Rule 8: IF temp is hot AND humidity is comfortable THEN comfort is neutral
-        double rule8 = Math.min(hotMem, comfHumMem);
-        System.out.printf("Rule 8: IF temp=hot AND humidity=comfortable THEN neutral: %.4f\n", rule8);
-        
-        // Rule 9: IF temp is hot AND humidity is humid THEN comfort is uncomfortable
-        double rule9 = Math.min(hotMem, humidMem);
-        System.out.printf("Rule 9: IF temp=hot AND humidity=humid THEN uncomfortable: %.4f\n", rule9);
-        
-        // Aggregate rules for each output fuzzy set (max for OR)
-        double uncomfortableLevel = Math.max(rule1, Math.max(rule3, Math.max(rule7, rule9)));
-        double neutralLevel = Math.max(rule2, Math.max(rule4, Math.max(rule6, rule8)));
-        double comfortableLevel = rule5;
+        // Aggregated (MAX) activation of each output term
+        double uncomfortableLevel = levels[comfort.termIndex("uncomfortable")];
+        double neutralLevel = levels[comfort.termIndex("neutral")];
+        double comfortableLevel = levels[comfort.termIndex("comfortable")];
         
         System.out.println("\n--- Rule Aggregation (MAX operation) ---");
         System.out.println("Uncomfortable = MAX(Rule1, Rule3, Rule7, Rule9)");
@@ -133,12 +140,22 @@ public class Assignment2 {
         System.out.printf("Neutral (Trapezoidal):     %.4f\n", neutralLevel);
         System.out.printf("Comfortable (Gaussian):     %.4f\n", comfortableLevel);
         
-        // Defuzzification using weighted average (centroid method)
-        double comfortLevel = defuzzify(uncomfortableLevel, neutralLevel, comfortableLevel, 
-                                       uncomfortable, neutral, comfortable);
+        // Defuzzification of the aggregated output surface (output sets clipped at their levels)
+        MembershipFunction[] outputSets = {uncomfortable, neutral, comfortable};
+        double[] outputLevels = {uncomfortableLevel, neutralLevel, comfortableLevel};
+        Defuzzifier defuzzifier = new Defuzzifier(Implication.CLIP);
+        // Optional: scale the output sets by their levels instead of clipping them
+        // defuzzifier = new Defuzzifier(Implication.SCALE);
+        double comfortLevel = defuzzifier.centroid(outputSets, outputLevels);
+        double bisector = defuzzifier.bisector(outputSets, outputLevels);
+        double meanOfMaxima = defuzzifier.meanOfMaxima(outputSets, outputLevels);
+        if (Double.isNaN(comfortLevel)) { // No rule fired: default to neutral
+            comfortLevel = bisector = meanOfMaxima = 50.0;
+        }
         
         System.out.println("\n--- Defuzzification (Centroid Method) ---");
         System.out.printf("Overall Comfort Level: %.2f%%\n", comfortLevel);
+        System.out.printf("Bisector: %.2f%%, Mean of Maxima: %.2f%%\n", bisector, meanOfMaxima);
         
         // Interpretation
         System.out.println("\n--- Interpretation ---");
@@ -164,23 +181,6 @@ public class Assignment2 {
         
         scanner.close();
     }
-    
-    // Defuzzification using weighted average (centroid method)
-    private static double defuzzify(double uncomfLevel, double neutralLevel, double comfLevel,
-                                   MembershipFunction uncomfMF, MembershipFunction neutralMF, 
-                                   MembershipFunction comfMF) {
-        // Use centroids of output fuzzy sets as weights
-        double uncomfCentroid = (uncomfMF.getLowerBound() + uncomfMF.getUpperBound()) / 2.0;
-        double neutralCentroid = (neutralMF.getLowerBound() + neutralMF.getUpperBound()) / 2.0;
-        double comfCentroid = (comfMF.getLowerBound() + comfMF.getUpperBound()) / 2.0;
-        
-        double numerator = uncomfLevel * uncomfCentroid + 
-                          neutralLevel * neutralCentroid + 
-                          comfLevel * comfCentroid;
-        double denominator = uncomfLevel + neutralLevel + comfLevel;
-        
-        return denominator != 0 ? numerator / denominator : 50.0; // Default to neutral
-    }
 }
 
 // Interface for membership functions
@@ -188,6 +188,12 @@ interface MembershipFunction {
     double getMembership(double x);
     double getLowerBound();
     double getUpperBound();
+
+    // Batch evaluation: out[i] = getMembership(xs[i]) for i in [from, to).
+    // Implementations override this with a tight loop that gives the same values.
+    default void getMembership(double[] xs, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) out[i] = getMembership(xs[i]);
+    }
 }
 
 // Triangular Membership Function
@@ -220,6 +226,36 @@ class TriangularMF implements MembershipFunction {
         return 0;
     }
     
+    // min/max instead of the interval tests above; they compile to branch-free
+    // instructions. Each shape gets its own loop so the loop body has no shape test.
+    // The one range test per reading maps NaN (a missing reading) to 0, as the scalar
+    // method does.
+    @Override
+    public void getMembership(double[] xs, double[] out, int from, int to) {
+        double a = this.a, b = this.b, c = this.c;
+        if (a < b && b < c) {
+            double left = b - a, right = c - b;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x > a && x < c ? Math.min((x - a) / left, (c - x) / right) : 0.0;
+            }
+        } else if (a == b && b < c) {
+            double width = c - a;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x > a ? Math.max(0.0, (c - x) / width) : 0.0;
+            }
+        } else if (a < b && b == c) {
+            double width = b - a;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x < c ? Math.max(0.0, (x - a) / width) : 0.0;
+            }
+        } else {
+            MembershipFunction.super.getMembership(xs, out, from, to);
+        }
+    }
+    
     @Override
     public double getLowerBound() {
         return a;
@@ -229,6 +265,11 @@ class TriangularMF implements MembershipFunction {
     public double getUpperBound() {
         return c;
     }
+    
+    // Corners as a trapezoid (a, b, b, c)
+    public double[] getCorners() {
+        return new double[] {a, b, b, c};
+    }
 }
 
 // Trapezoidal Membership Function
@@ -251,6 +292,34 @@ class TrapezoidalMF implements MembershipFunction {
         return 0;
     }
     
+    // Branch-free like TriangularMF's batch method: the plateau is min(rise, 1, fall)
+    // and NaN readings give 0
+    @Override
+    public void getMembership(double[] xs, double[] out, int from, int to) {
+        double a = this.a, b = this.b, c = this.c, d = this.d;
+        if (a < b && b <= c && c < d) {
+            double rise = b - a, fall = d - c;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x > a && x < d ? Math.min(Math.min((x - a) / rise, 1.0), (d - x) / fall) : 0.0;
+            }
+        } else if (a == b && b <= c && c < d) {
+            double fall = d - c;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x > a ? Math.max(0.0, Math.min(1.0, (d - x) / fall)) : 0.0;
+            }
+        } else if (a < b && b <= c && c == d) {
+            double rise = b - a;
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                out[i] = x <= c ? Math.max(0.0, Math.min(1.0, (x - a) / rise)) : 0.0;
+            }
+        } else {
+            MembershipFunction.super.getMembership(xs, out, from, to);
+        }
+    }
+    
     @Override
     public double getLowerBound() {
         return a;
@@ -260,6 +329,10 @@ class TrapezoidalMF implements MembershipFunction {
     public double getUpperBound() {
         return d;
     }
+    
+    public double[] getCorners() {
+        return new double[] {a, b, c, d};
+    }
 }
 
 // Gaussian Membership Function
@@ -276,10 +349,22 @@ class GaussianMF implements MembershipFunction {
     
     @Override
     public double getMembership(double x) {
-        if (x < lower || x > upper) return 0;
+        if (!(x >= lower && x <= upper)) return 0; // also 0 for NaN, like the other MFs
         return Math.exp(-0.5 * Math.pow((x - mean) / stdDev, 2));
     }
     
+    // z * z instead of Math.pow(z, 2), which gives the same square, and no Math.exp
+    // call for readings outside [lower, upper]
+    @Override
+    public void getMembership(double[] xs, double[] out, int from, int to) {
+        double mean = this.mean, stdDev = this.stdDev, lower = this.lower, upper = this.upper;
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double z = (x - mean) / stdDev;
+            out[i] = x >= lower && x <= upper ? Math.exp(-0.5 * (z * z)) : 0.0;
+        }
+    }
+    
     @Override
     public double getLowerBound() {
         return lower;
@@ -289,4 +374,866 @@ class GaussianMF implements MembershipFunction {
     public double getUpperBound() {
         return upper;
     }
+    
+    public double getMean() {
+        return mean;
+    }
+    
+    public double getStdDev() {
+        return stdDev;
+    }
+}
+
+/**
+ * Throughput of membership evaluation in readings per second: one getMembership(x)
+ * call per reading against the batch getMembership(xs, out, from, to), for the three
+ * MF types of Assignment2 on uniform readings in [0, 100]. The scalar loop is shared
+ * by all three types, so its interface call is megamorphic, as in a list of mixed
+ * terms. The last column checks that both paths give the same values.
+ *
+ * Usage: java MembershipBenchmark [readings] [repetitions]
+ */
+class MembershipBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        double[] xs = new double[n];
+        Random rnd = new Random(1L);
+        for (int i = 0; i < n; i++) xs[i] = rnd.nextDouble() * 100.0;
+        double[] scalar = new double[n];
+        double[] batch = new double[n];
+
+        String[] names = {"Triangular(0, 0, 50)", "Trapezoidal(30, 40, 60, 70)", "Gaussian(75, 10)"};
+        MembershipFunction[] mfs = {
+            new TriangularMF(0, 0, 50), new TrapezoidalMF(30, 40, 60, 70), new GaussianMF(75, 10, 50, 100)
+        };
+
+        System.out.println("=== Membership Function Throughput ===");
+        System.out.println("  Readings: " + n);
+        System.out.println("  Repetitions: " + repetitions);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-30s %-16s %-16s %-10s %-10s",
+                "Membership Function", "Scalar/sec", "Batch/sec", "Speedup", "Max |diff|"));
+
+        // Warm up every MF first so the scalar call site has seen all three types
+        for (MembershipFunction mf : mfs) {
+            scalarLoop(mf, xs, scalar, 3);
+            batchLoop(mf, xs, batch, 3);
+        }
+        for (int m = 0; m < mfs.length; m++) {
+            long t0 = System.nanoTime();
+            scalarLoop(mfs[m], xs, scalar, repetitions);
+            double scalarRate = (double) n * repetitions / ((System.nanoTime() - t0) / 1e9);
+            t0 = System.nanoTime();
+            batchLoop(mfs[m], xs, batch, repetitions);
+            double batchRate = (double) n * repetitions / ((System.nanoTime() - t0) / 1e9);
+            double maxDiff = 0.0;
+            for (int i = 0; i < n; i++) maxDiff = Math.max(maxDiff, Math.abs(scalar[i] - batch[i]));
+            System.out.println(String.format("%-30s %-16.3e %-16.3e %-10.2f %-10.1e",
+                    names[m], scalarRate, batchRate, batchRate / scalarRate, maxDiff));
+        }
+    }
+
+    private static void scalarLoop(MembershipFunction mf, double[] xs, double[] out, int repetitions) {
+        for (int r = 0; r < repetitions; r++) {
+            for (int i = 0; i < xs.length; i++) out[i] = mf.getMembership(xs[i]);
+        }
+    }
+
+    private static void batchLoop(MembershipFunction mf, double[] xs, double[] out, int repetitions) {
+        for (int r = 0; r < repetitions; r++) mf.getMembership(xs, out, 0, xs.length);
+    }
+}
+
+// T-norm used for AND. OR uses its dual s-norm and NOT is 1 - x, so De Morgan's laws hold
+enum TNorm {
+    MIN, PRODUCT, LUKASIEWICZ;
+
+    double and(double a, double b) {
+        switch (this) {
+            case PRODUCT: return a * b;
+            case LUKASIEWICZ: return Math.max(0.0, a + b - 1.0);
+            default: return Math.min(a, b);
+        }
+    }
+
+    double or(double a, double b) {
+        switch (this) {
+            case PRODUCT: return a + b - a * b;
+            case LUKASIEWICZ: return Math.min(1.0, a + b);
+            default: return Math.max(a, b);
+        }
+    }
+}
+
+// Linguistic variable: a name and its terms, each a named membership function
+class LinguisticVariable {
+    private final String name;
+    private final List<String> termNames = new ArrayList<>();
+    private final List<MembershipFunction> terms = new ArrayList<>();
+
+    public LinguisticVariable(String name) {
+        this.name = name;
+    }
+
+    public LinguisticVariable addTerm(String term, MembershipFunction mf) {
+        if (termNames.contains(term)) throw new IllegalArgumentException("Duplicate term " + name + "." + term);
+        termNames.add(term);
+        terms.add(mf);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    public String getTermName(int i) {
+        return termNames.get(i);
+    }
+
+    public MembershipFunction getTerm(int i) {
+        return terms.get(i);
+    }
+
+    public int termIndex(String term) {
+        int i = termNames.indexOf(term);
+        if (i < 0) throw new IllegalArgumentException("Unknown term " + name + "." + term);
+        return i;
+    }
+}
+
+/**
+ * Mamdani rule base over linguistic variables, with rules written as text:
+ *   IF temp IS cold AND (humidity IS dry OR humidity IS NOT comfortable) THEN comfort IS uncomfortable
+ * NOT binds tighter than AND, and AND tighter than OR. AND uses the chosen t-norm, OR
+ * its dual s-norm, and the rules for one output term are aggregated with MAX.
+ *
+ * Each rule is compiled to a postfix program over global term ids, stored in one flat
+ * int array. From the antecedent we also derive the terms it requires: terms that
+ * zero the rule for every t-norm when their membership is 0 (AND needs the terms of
+ * both sides, OR only those common to both, NOT none). Rules are filed in a trie with
+ * one level per input variable, keyed by the required term of that variable, or by a
+ * "don't care" slot. Evaluation walks only the branches of terms with non-zero
+ * membership, so a rule is visited only if all its required terms are active; for
+ * plain conjunctions that means only the rules that fire.
+ *
+ * Terms must be added to the variables before the rule base is built. Not thread-safe:
+ * evaluation reuses internal buffers.
+ */
+class FuzzyRuleBase {
+    private static final int NOT = -1;
+    private static final int AND = -2;
+    private static final int OR = -3;
+
+    private final LinguisticVariable output;
+    private final LinguisticVariable[] inputs;
+    private final int[] termBase;        // global id of each input variable's first term
+    private final MembershipFunction[] termMF;
+    private TNorm tNorm = TNorm.MIN;
+
+    // Rules as added
+    private final List<int[]> programs = new ArrayList<>();
+    private final List<int[]> keys = new ArrayList<>();   // required local term per input, -1 if none
+    private final List<Integer> consequents = new ArrayList<>();
+
+    // Compiled form, rebuilt after a rule is added
+    private boolean compiled;
+    private int[] program;
+    private int[] programStart;
+    private int[] consequent;
+    private int[] nodeStart;             // trie node -> first slot in child
+    private int[] child;                 // internal node or, on the last level, leaf id; -1 if empty
+    private int[] leafStart;
+    private int[] leafRules;
+
+    // Evaluation buffers
+    private final double[] mu;
+    private final int[] active;          // local indices of active terms, grouped by variable
+    private final int[] activeEnd;
+    private double[] stack;
+    private double[] strength;
+    private int[] fired;
+    private int firedCount;
+    private double[] out;
+
+    public FuzzyRuleBase(LinguisticVariable output, LinguisticVariable... inputs) {
+        if (inputs.length == 0) throw new IllegalArgumentException("A rule base needs at least one input variable");
+        this.output = output;
+        this.inputs = inputs.clone();
+        this.termBase = new int[inputs.length + 1];
+        for (int v = 0; v < inputs.length; v++) termBase[v + 1] = termBase[v] + inputs[v].getTermCount();
+        this.termMF = new MembershipFunction[termBase[inputs.length]];
+        for (int v = 0; v < inputs.length; v++) {
+            for (int t = 0; t < inputs[v].getTermCount(); t++) termMF[termBase[v] + t] = inputs[v].getTerm(t);
+        }
+        this.mu = new double[termMF.length];
+        this.active = new int[termMF.length];
+        this.activeEnd = new int[inputs.length];
+    }
+
+    /** Sets the t-norm for AND (default MIN); OR uses its dual s-norm. */
+    public FuzzyRuleBase withTNorm(TNorm tNorm) {
+        this.tNorm = tNorm;
+        return this;
+    }
+
+    /** Adds a rule "IF antecedent THEN output IS term". */
+    public FuzzyRuleBase addRule(String rule) {
+        new RuleParser(rule).parse();
+        compiled = false;
+        return this;
+    }
+
+    public int ruleCount() {
+        return programs.size();
+    }
+
+    /**
+     * Firing strength of a rule in the last evaluation; 0 if it was skipped, or for every
+     * rule once a rule has been added since.
+     */
+    public double ruleStrength(int rule) {
+        if (rule < 0 || rule >= ruleCount()) throw new IndexOutOfBoundsException("rule " + rule + " of " + ruleCount());
+        return !compiled || rule >= strength.length ? 0.0 : strength[rule];
+    }
+
+    /** Number of rules visited by the last evaluation. */
+    public int visitedRuleCount() {
+        return firedCount;
+    }
+
+    /** Aggregated activation of each output term for the given input values. */
+    public double[] evaluate(double... x) {
+        double[] result = new double[output.getTermCount()];
+        evaluate(x, result);
+        return result;
+    }
+
+    /** As evaluate(x), but writes into result and does not allocate. */
+    public void evaluate(double[] x, double[] result) {
+        if (x.length != inputs.length) {
+            throw new IllegalArgumentException("Expected " + inputs.length + " input values, got " + x.length);
+        }
+        if (result.length < output.getTermCount()) {
+            throw new IllegalArgumentException("Result array too short: " + result.length);
+        }
+        if (!compiled) compile();
+        for (int i = 0; i < firedCount; i++) strength[fired[i]] = 0.0;
+        firedCount = 0;
+        Arrays.fill(result, 0, output.getTermCount(), 0.0);
+        if (programs.isEmpty()) return;
+
+        int a = 0;
+        for (int v = 0; v < inputs.length; v++) {
+            for (int g = termBase[v]; g < termBase[v + 1]; g++) {
+                double m = termMF[g].getMembership(x[v]);
+                mu[g] = m;
+                if (m > 0.0) active[a++] = g - termBase[v];
+            }
+            activeEnd[v] = a;
+        }
+        out = result;
+        visit(0, 0);
+        out = null;
+    }
+
+    private void visit(int node, int depth) {
+        int base = nodeStart[node];
+        boolean last = depth == inputs.length - 1;
+        for (int a = depth == 0 ? 0 : activeEnd[depth - 1]; a < activeEnd[depth]; a++) {
+            int c = child[base + active[a]];
+            if (c < 0) continue;
+            if (last) {
+                fire(c);
+            } else {
+                visit(c, depth + 1);
+            }
+        }
+        int c = child[base + inputs[depth].getTermCount()];  // rules that do not need this variable
+        if (c < 0) return;
+        if (last) {
+            fire(c);
+        } else {
+            visit(c, depth + 1);
+        }
+    }
+
+    private void fire(int leaf) {
+        for (int i = leafStart[leaf]; i < leafStart[leaf + 1]; i++) {
+            int r = leafRules[i];
+            double s = run(r);
+            strength[r] = s;
+            fired[firedCount++] = r;
+            int k = consequent[r];
+            if (s > out[k]) out[k] = s;
+        }
+    }
+
+    // Runs a rule's postfix program on the current memberships
+    private double run(int r) {
+        int sp = 0;
+        for (int p = programStart[r]; p < programStart[r + 1]; p++) {
+            int op = program[p];
+            if (op >= 0) {
+                stack[sp++] = mu[op];
+            } else if (op == NOT) {
+                stack[sp - 1] = 1.0 - stack[sp - 1];
+            } else {
+                double b = stack[--sp];
+                stack[sp - 1] = op == AND ? tNorm.and(stack[sp - 1], b) : tNorm.or(stack[sp - 1], b);
+            }
+        }
+        return stack[0];
+    }
+
+    private void compile() {
+        int rules = programs.size();
+        programStart = new int[rules + 1];
+        for (int r = 0; r < rules; r++) programStart[r + 1] = programStart[r] + programs.get(r).length;
+        program = new int[programStart[rules]];
+        consequent = new int[rules];
+        int maxLength = 1;
+        for (int r = 0; r < rules; r++) {
+            int[] p = programs.get(r);
+            System.arraycopy(p, 0, program, programStart[r], p.length);
+            consequent[r] = consequents.get(r);
+            maxLength = Math.max(maxLength, p.length);
+        }
+
+        // Build the trie with growable lists, then flatten it
+        List<int[]> nodes = new ArrayList<>();
+        List<List<Integer>> leaves = new ArrayList<>();
+        nodes.add(emptySlots(0));
+        for (int r = 0; r < rules; r++) {
+            int[] key = keys.get(r);
+            int node = 0;
+            for (int v = 0; v < inputs.length; v++) {
+                int slot = key[v] >= 0 ? key[v] : inputs[v].getTermCount();
+                int[] slots = nodes.get(node);
+                if (slots[slot] < 0) {
+                    if (v == inputs.length - 1) {
+                        slots[slot] = leaves.size();
+                        leaves.add(new ArrayList<>());
+                    } else {
+                        slots[slot] = nodes.size();
+                        nodes.add(emptySlots(v + 1));
+                    }
+                }
+                node = slots[slot];
+            }
+            leaves.get(node).add(r);
+        }
+        nodeStart = new int[nodes.size()];
+        int slotCount = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeStart[i] = slotCount;
+            slotCount += nodes.get(i).length;
+        }
+        child = new int[slotCount];
+        for (int i = 0; i < nodes.size(); i++) {
+            int[] slots = nodes.get(i);
+            System.arraycopy(slots, 0, child, nodeStart[i], slots.length);
+        }
+        leafStart = new int[leaves.size() + 1];
+        leafRules = new int[rules];
+        for (int i = 0; i < leaves.size(); i++) {
+            List<Integer> leaf = leaves.get(i);
+            leafStart[i + 1] = leafStart[i] + leaf.size();
+            for (int j = 0; j < leaf.size(); j++) leafRules[leafStart[i] + j] = leaf.get(j);
+        }
+
+        stack = new double[maxLength];
+        strength = new double[rules];
+        fired = new int[rules];
+        firedCount = 0;
+        compiled = true;
+    }
+
+    private int[] emptySlots(int depth) {
+        int[] slots = new int[inputs[depth].getTermCount() + 1];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+
+    // Recursive-descent parser; emits the postfix program and returns required term ids
+    private final class RuleParser {
+        private final String text;
+        private final String[] tokens;
+        private final List<Integer> code = new ArrayList<>();
+        private int pos;
+
+        RuleParser(String text) {
+            this.text = text;
+            this.tokens = text.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+");
+        }
+
+        void parse() {
+            expect("IF");
+            BitSet required = or();
+            expect("THEN");
+            String name = next();
+            if (!name.equals(output.getName())) fail("expected output variable " + output.getName() + " but found " + name);
+            expect("IS");
+            int term = output.termIndex(next());
+            if (pos < tokens.length) fail("unexpected '" + tokens[pos] + "'");
+
+            int[] key = new int[inputs.length];
+            for (int v = 0; v < inputs.length; v++) {
+                int g = required.nextSetBit(termBase[v]);
+                key[v] = g >= 0 && g < termBase[v + 1] ? g - termBase[v] : -1;
+            }
+            int[] p = new int[code.size()];
+            for (int i = 0; i < p.length; i++) p[i] = code.get(i);
+            programs.add(p);
+            keys.add(key);
+            consequents.add(term);
+        }
+
+        private BitSet or() {
+            BitSet required = and();
+            while (accept("OR")) {
+                required.and(and());
+                code.add(OR);
+            }
+            return required;
+        }
+
+        private BitSet and() {
+            BitSet required = unary();
+            while (accept("AND")) {
+                required.or(unary());
+                code.add(AND);
+            }
+            return required;
+        }
+
+        private BitSet unary() {
+            if (accept("NOT")) {
+                unary();
+                code.add(NOT);
+                return new BitSet();
+            }
+            if (accept("(")) {
+                BitSet required = or();
+                expect(")");
+                return required;
+            }
+            int v = inputIndex(next());
+            expect("IS");
+            boolean negated = accept("NOT");
+            int g = termBase[v] + inputs[v].termIndex(next());
+            code.add(g);
+            BitSet required = new BitSet();
+            if (negated) {
+                code.add(NOT);
+            } else {
+                required.set(g);
+            }
+            return required;
+        }
+
+        private int inputIndex(String name) {
+            for (int v = 0; v < inputs.length; v++) {
+                if (inputs[v].getName().equals(name)) return v;
+            }
+            fail("unknown input variable " + name);
+            return -1;
+        }
+
+        private boolean accept(String keyword) {
+            if (pos < tokens.length && tokens[pos].equalsIgnoreCase(keyword)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String keyword) {
+            if (!accept(keyword)) fail("expected " + keyword + (pos < tokens.length ? " at '" + tokens[pos] + "'" : " at end"));
+        }
+
+        private String next() {
+            if (pos >= tokens.length) fail("unexpected end of rule");
+            return tokens[pos++];
+        }
+
+        private void fail(String message) {
+            throw new IllegalArgumentException("Invalid rule \"" + text + "\": " + message);
+        }
+    }
+}
+
+// How a fired rule shapes its output set: CLIP cuts it at the rule's level (min),
+// SCALE multiplies it by the level (product)
+enum Implication { CLIP, SCALE }
+
+/**
+ * Defuzzification of a Mamdani output: the aggregate max_k implication(mu_k(x), level_k)
+ * of the output sets, reduced to its centroid, bisector or mean of maxima.
+ *
+ * When every output set with a non-zero level is a TriangularMF or TrapezoidalMF, the
+ * aggregate is piecewise linear. Between the corners of the clipped (or scaled) sets,
+ * its upper envelope changes line only where two lines cross, so it splits into
+ * linear pieces found exactly. Area, first moment and the bisector are then closed-form
+ * sums over these pieces; the work depends on the number of output sets, not on a
+ * sampling resolution. Any other set (GaussianMF, or another MembershipFunction) makes
+ * the aggregate non-linear. It is then integrated by adaptive Simpson quadrature,
+ * split at every corner, clip point and cut-off, to the configured tolerance.
+ *
+ * The mean of maxima needs no integration. The maximal set of the aggregate is the
+ * union of the maximal sets of the outputs that reach its height, and for triangular,
+ * trapezoidal and Gaussian sets each of those is known in closed form. Other
+ * MembershipFunction types are searched on a grid of 10^4 points.
+ *
+ * Each method returns NaN when all levels are 0.
+ */
+class Defuzzifier {
+    private static final double EPS = 1e-12;
+    private static final int MAX_DEPTH = 50;
+    private static final int SEARCH_POINTS = 10_000;
+
+    private final Implication implication;
+    private double tolerance = 1e-8;
+
+    public Defuzzifier(Implication implication) {
+        this.implication = implication;
+    }
+
+    /** Absolute error target of the quadrature on each piece (default 1e-8). */
+    public Defuzzifier withTolerance(double tolerance) {
+        if (!(tolerance > 0)) throw new IllegalArgumentException("tolerance must be positive: " + tolerance);
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /** Centre of gravity of the aggregate. */
+    public double centroid(MembershipFunction[] sets, double[] levels) {
+        Aggregate g = new Aggregate(sets, levels);
+        return g.area > 0 ? g.moment / g.area : Double.NaN;
+    }
+
+    /** The point that divides the aggregate's area in half. */
+    public double bisector(MembershipFunction[] sets, double[] levels) {
+        Aggregate g = new Aggregate(sets, levels);
+        if (!(g.area > 0)) return Double.NaN;
+        double half = g.area / 2, before = 0;
+        for (int i = 0; i < g.count - 1; i++) {
+            if (before + g.pieceArea[i] >= half) return g.locate(i, half - before);
+            before += g.pieceArea[i];
+        }
+        return g.locate(g.count - 1, half - before);
+    }
+
+    /** Mean of the points where the aggregate reaches its maximum. */
+    public double meanOfMaxima(MembershipFunction[] sets, double[] levels) {
+        check(sets, levels);
+        int n = sets.length;
+        double[] height = new double[n], lo = new double[n], hi = new double[n];
+        double top = 0;
+        for (int k = 0; k < n; k++) {
+            if (levels[k] > 0 && maxima(sets[k], levels[k], k, height, lo, hi)) top = Math.max(top, height[k]);
+        }
+        if (!(top > 0)) return Double.NaN;
+
+        // Union of the maximal intervals of the sets that reach the top, as (lo, hi) sorted by lo
+        Integer[] order = new Integer[n];
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            if (levels[k] > 0 && height[k] >= top - EPS) order[m++] = k;
+        }
+        Arrays.sort(order, 0, m, (p, q) -> Double.compare(lo[p], lo[q]));
+        double length = 0, weighted = 0, points = 0;
+        int pointCount = 0;
+        double runLo = lo[order[0]], runHi = hi[order[0]];
+        for (int i = 1; i <= m; i++) {
+            if (i < m && lo[order[i]] <= runHi) {
+                runHi = Math.max(runHi, hi[order[i]]);
+                continue;
+            }
+            double len = runHi - runLo;
+            if (len <= EPS * Math.max(1, Math.abs(runHi))) len = 0;  // a peak, not a plateau
+            length += len;
+            weighted += len * (runLo + runHi) / 2;
+            points += runLo;
+            pointCount++;
+            if (i < m) {
+                runLo = lo[order[i]];
+                runHi = hi[order[i]];
+            }
+        }
+        // Isolated peaks count only when the maxima have no extent at all
+        return length > 0 ? weighted / length : points / pointCount;
+    }
+
+    // Height and maximal interval [lo, hi] of one implied output set; false if it is empty
+    private boolean maxima(MembershipFunction mf, double level, int k, double[] height, double[] lo, double[] hi) {
+        double[] knots = knots(mf, level);
+        if (knots != null) {
+            if (knots[3] <= knots[0]) return false;
+            height[k] = knots[5];
+            lo[k] = knots[1];
+            hi[k] = knots[2];
+            return true;
+        }
+        if (mf instanceof GaussianMF) {
+            GaussianMF g = (GaussianMF) mf;
+            double lower = g.getLowerBound(), upper = g.getUpperBound();
+            double peakX = Math.max(lower, Math.min(upper, g.getMean()));
+            double peak = g.getMembership(peakX);
+            if (implication == Implication.CLIP && level < peak) {
+                double w = g.getStdDev() * Math.sqrt(-2 * Math.log(level));
+                height[k] = level;
+                lo[k] = Math.max(lower, g.getMean() - w);
+                hi[k] = Math.min(upper, g.getMean() + w);
+            } else {
+                height[k] = implication == Implication.CLIP ? peak : level * peak;
+                lo[k] = peakX;
+                hi[k] = peakX;
+            }
+            return height[k] > 0;
+        }
+        // Any other shape: search a grid over its bounds
+        double lower = finiteLower(mf), upper = finiteUpper(mf);
+        double best = 0, first = lower, last = lower;
+        for (int i = 0; i <= SEARCH_POINTS; i++) {
+            double x = lower + (upper - lower) * i / SEARCH_POINTS;
+            double y = imply(mf.getMembership(x), level);
+            if (y > best + EPS) {
+                best = y;
+                first = x;
+                last = x;
+            } else if (y >= best - EPS) {
+                last = x;
+            }
+        }
+        height[k] = best;
+        lo[k] = first;
+        hi[k] = last;
+        return best > 0;
+    }
+
+    private double imply(double mu, double level) {
+        return implication == Implication.CLIP ? Math.min(mu, level) : mu * level;
+    }
+
+    // Corners {x0..x3, y0..y3} of a clipped or scaled triangle / trapezoid; null for other shapes
+    private double[] knots(MembershipFunction mf, double level) {
+        double[] c;
+        if (mf instanceof TriangularMF) {
+            c = ((TriangularMF) mf).getCorners();
+        } else if (mf instanceof TrapezoidalMF) {
+            c = ((TrapezoidalMF) mf).getCorners();
+        } else {
+            return null;
+        }
+        if (!(c[0] <= c[1] && c[1] <= c[2] && c[2] <= c[3])) return null;
+        if (implication == Implication.SCALE || level == 1) {
+            return new double[] {c[0], c[1], c[2], c[3], 0, level, level, 0};
+        }
+        return new double[] {c[0], c[0] + level * (c[1] - c[0]), c[3] - level * (c[3] - c[2]), c[3], 0, level, level, 0};
+    }
+
+    private static double finiteLower(MembershipFunction mf) {
+        double v = mf.getLowerBound();
+        if (Double.isInfinite(v) || Double.isNaN(v)) throw new IllegalArgumentException("Output set needs finite bounds: " + mf);
+        return v;
+    }
+
+    private static double finiteUpper(MembershipFunction mf) {
+        double v = mf.getUpperBound();
+        if (Double.isInfinite(v) || Double.isNaN(v)) throw new IllegalArgumentException("Output set needs finite bounds: " + mf);
+        return v;
+    }
+
+    private static void check(MembershipFunction[] sets, double[] levels) {
+        if (sets.length != levels.length) {
+            throw new IllegalArgumentException(sets.length + " output sets but " + levels.length + " levels");
+        }
+        for (double level : levels) {
+            if (!(level >= 0 && level <= 1)) throw new IllegalArgumentException("Level must be in [0, 1]: " + level);
+        }
+    }
+
+    private double simpson(DoubleUnaryOperator f, double a, double b) {
+        // The end points are taken just inside: an output set may jump at a piece boundary
+        double fa = f.applyAsDouble(Math.nextUp(a));
+        double fb = f.applyAsDouble(Math.nextDown(b));
+        double m = 0.5 * (a + b);
+        double fm = f.applyAsDouble(m);
+        return adapt(f, a, b, fa, fm, fb, (b - a) / 6 * (fa + 4 * fm + fb), tolerance, MAX_DEPTH);
+    }
+
+    private double adapt(DoubleUnaryOperator f, double a, double b, double fa, double fm, double fb,
+                         double whole, double eps, int depth) {
+        double m = 0.5 * (a + b);
+        double flm = f.applyAsDouble(0.5 * (a + m));
+        double frm = f.applyAsDouble(0.5 * (m + b));
+        double left = (m - a) / 6 * (fa + 4 * flm + fm);
+        double right = (b - m) / 6 * (fm + 4 * frm + fb);
+        double delta = left + right - whole;
+        if (depth <= 0 || Math.abs(delta) <= 15 * eps) return left + right + delta / 15;
+        return adapt(f, a, m, fa, flm, fm, left, eps / 2, depth - 1)
+             + adapt(f, m, b, fm, frm, fb, right, eps / 2, depth - 1);
+    }
+
+    // The aggregate of one call, split into pieces with their area and first moment
+    private final class Aggregate {
+        private final MembershipFunction[] sets;
+        private final double[] levels;
+        private final double[][] knots;      // per active set when piecewise linear
+        private final boolean[] active;
+        private final boolean linear;
+        private final DoubleUnaryOperator value = this::value;
+        private final DoubleUnaryOperator xValue = x -> x * value(x);
+
+        int count;
+        double[] start = new double[16], end = new double[16], pieceArea = new double[16];
+        double[] startY = new double[16], endY = new double[16];
+        double area, moment;
+
+        Aggregate(MembershipFunction[] sets, double[] levels) {
+            check(sets, levels);
+            int n = sets.length;
+            this.sets = sets;
+            this.levels = levels;
+            this.knots = new double[n][];
+            this.active = new boolean[n];
+            boolean allLinear = true;
+            double[] breaks = new double[6 * n];
+            int b = 0;
+            for (int k = 0; k < n; k++) {
+                double level = levels[k];
+                if (level == 0) continue;
+                knots[k] = knots(sets[k], level);
+                if (knots[k] != null) {
+                    if (knots[k][3] <= knots[k][0]) continue;  // zero width: no area, no maximum
+                    for (int j = 0; j < 4; j++) breaks[b++] = knots[k][j];
+                } else if (sets[k] instanceof GaussianMF) {
+                    GaussianMF g = (GaussianMF) sets[k];
+                    double lower = g.getLowerBound(), upper = g.getUpperBound();
+                    breaks[b++] = lower;
+                    breaks[b++] = upper;
+                    breaks[b++] = Math.max(lower, Math.min(upper, g.getMean()));
+                    if (implication == Implication.CLIP && level < 1) {
+                        double w = g.getStdDev() * Math.sqrt(-2 * Math.log(level));
+                        breaks[b++] = Math.max(lower, Math.min(upper, g.getMean() - w));
+                        breaks[b++] = Math.max(lower, Math.min(upper, g.getMean() + w));
+                    }
+                    allLinear = false;
+                } else {
+                    breaks[b++] = finiteLower(sets[k]);
+                    breaks[b++] = finiteUpper(sets[k]);
+                    allLinear = false;
+                }
+                active[k] = true;
+            }
+            this.linear = allLinear;
+            Arrays.sort(breaks, 0, b);
+            for (int i = 1; i < b; i++) {
+                if (breaks[i] <= breaks[i - 1]) continue;
+                if (linear) {
+                    addLinear(breaks[i - 1], breaks[i]);
+                } else {
+                    add(breaks[i - 1], breaks[i], simpson(value, breaks[i - 1], breaks[i]),
+                        simpson(xValue, breaks[i - 1], breaks[i]), Double.NaN, Double.NaN);
+                }
+            }
+        }
+
+        private double value(double x) {
+            double y = 0;
+            for (int k = 0; k < sets.length; k++) {
+                if (active[k]) y = Math.max(y, imply(sets[k].getMembership(x), levels[k]));
+            }
+            return y;
+        }
+
+        // Between two consecutive corners every set is one line (value at u, slope); the
+        // envelope switches lines only where two of them cross
+        private void addLinear(double u, double v) {
+            int n = 0;
+            double[] at = new double[sets.length], slope = new double[sets.length];
+            double mid = 0.5 * (u + v);
+            for (int k = 0; k < sets.length; k++) {
+                double[] kn = knots[k];
+                if (!active[k] || mid <= kn[0] || mid >= kn[3]) continue;
+                int j = mid < kn[1] ? 0 : (mid < kn[2] ? 1 : 2);
+                slope[n] = (kn[5 + j] - kn[4 + j]) / (kn[j + 1] - kn[j]);
+                at[n] = kn[4 + j] + slope[n] * (u - kn[j]);
+                n++;
+            }
+            if (n == 0) return;
+            double[] cuts = new double[n * (n - 1) / 2 + 2];
+            int c = 0;
+            cuts[c++] = u;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (slope[i] == slope[j]) continue;
+                    double x = u + (at[j] - at[i]) / (slope[i] - slope[j]);
+                    if (x > u && x < v) cuts[c++] = x;
+                }
+            }
+            cuts[c++] = v;
+            Arrays.sort(cuts, 0, c);
+            for (int p = 1; p < c; p++) {
+                double s = cuts[p - 1], t = cuts[p];
+                if (t <= s) continue;
+                double centre = 0.5 * (s + t) - u;
+                int best = 0;
+                for (int i = 1; i < n; i++) {
+                    if (at[i] + slope[i] * centre > at[best] + slope[best] * centre) best = i;
+                }
+                double ys = Math.max(0, at[best] + slope[best] * (s - u));
+                double yt = Math.max(0, at[best] + slope[best] * (t - u));
+                add(s, t, (ys + yt) / 2 * (t - s), (t - s) / 6 * (ys * (2 * s + t) + yt * (s + 2 * t)), ys, yt);
+            }
+        }
+
+        private void add(double s, double t, double a, double m, double ys, double yt) {
+            if (count == start.length) {
+                int size = 2 * count;
+                start = Arrays.copyOf(start, size);
+                end = Arrays.copyOf(end, size);
+                pieceArea = Arrays.copyOf(pieceArea, size);
+                startY = Arrays.copyOf(startY, size);
+                endY = Arrays.copyOf(endY, size);
+            }
+            start[count] = s;
+            end[count] = t;
+            pieceArea[count] = a;
+            startY[count] = ys;
+            endY[count] = yt;
+            count++;
+            area += a;
+            moment += m;
+        }
+
+        // The x in piece i where the area from the piece's start reaches r
+        double locate(int i, double r) {
+            double s = start[i], t = end[i];
+            if (r <= 0) return s;
+            if (linear) {
+                // Solve ys d + k d^2 / 2 = r in the cancellation-free form
+                double ys = startY[i], k = (endY[i] - ys) / (t - s);
+                double denominator = ys + Math.sqrt(Math.max(0, ys * ys + 2 * k * r));
+                return denominator > 0 ? Math.min(t, s + 2 * r / denominator) : t;
+            }
+            double lo = s, hi = t;
+            for (int iter = 0; iter < 100 && hi - lo > EPS * Math.max(1, Math.abs(hi)); iter++) {
+                double mid = 0.5 * (lo + hi);
+                if (simpson(value, s, mid) < r) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            return 0.5 * (lo + hi);
+        }
+    }
 }
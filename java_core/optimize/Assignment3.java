@@ -1,4 +1,6 @@
+import java.util.Random;
 import java.util.Scanner;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Assignment 3: Parameter Effects on Membership Functions
@@ -103,6 +105,18 @@ public class Assignment3 {
             System.out.printf("%2d      %.4f    %.4f    %+.4f\n", i, orig, mod, change);
         }
         
+        // Lookup tables for the MFs that call Math.exp / Math.pow
+        System.out.println("\n--- Lookup-Table Membership Functions (max error 1e-4) ---");
+        System.out.println("MF                   Points   Memory    Error Bound");
+        System.out.println("------------------------------------------------------");
+        BoundedMembershipFunction[] smooth = {gaussOriginal, bellOriginal, sigOriginal};
+        String[] smoothNames = {"Gaussian(20,5)", "Bell-Shaped(2,3,20)", "Sigmoidal(0.5,20)"};
+        for (int m = 0; m < smooth.length; m++) {
+            TabulatedMF table = new TabulatedMF(smooth[m], 1e-4);
+            System.out.printf("%-20s %6d   %5.1f KB  %.2e\n", smoothNames[m], table.getResolution(),
+                              table.getMemoryBytes() / 1024.0, table.getErrorBound());
+        }
+        
         // Interactive parameter exploration
         System.out.println("\n--- Interactive Parameter Exploration ---");
         System.out.print("Enter a value to test (10-30): ");
@@ -126,8 +140,17 @@ public class Assignment3 {
     }
 }
 
+// Membership function with bounds that delimit where it is non-zero (or, for the
+// unbounded bell and sigmoid, where it is not yet within 1e-6 of its limits). Named
+// apart from Assignment2's MembershipFunction so the two files never declare the same type.
+interface BoundedMembershipFunction {
+    double getMembership(double x);
+    double getLowerBound();
+    double getUpperBound();
+}
+
 // Triangular Membership Function
-class TriangularMF {
+class TriangularMF implements BoundedMembershipFunction {
     private double a, b, c;
     
     public TriangularMF(double a, double b, double c) {
@@ -142,10 +165,18 @@ class TriangularMF {
         if (x > b && x <= c) return (c - x) / (c - b);
         return 0;
     }
+    
+    public double getLowerBound() {
+        return a;
+    }
+    
+    public double getUpperBound() {
+        return c;
+    }
 }
 
 // Trapezoidal Membership Function
-class TrapezoidalMF {
+class TrapezoidalMF implements BoundedMembershipFunction {
     private double a, b, c, d;
     
     public TrapezoidalMF(double a, double b, double c, double d) {
@@ -162,10 +193,18 @@ class TrapezoidalMF {
         if (x > c && x <= d) return (d - x) / (d - c);
         return 0;
     }
+    
+    public double getLowerBound() {
+        return a;
+    }
+    
+    public double getUpperBound() {
+        return d;
+    }
 }
 
 // Gaussian Membership Function
-class GaussianMF {
+class GaussianMF implements BoundedMembershipFunction {
     private double mean, stdDev;
     private double lower, upper;
     
@@ -180,10 +219,20 @@ class GaussianMF {
         if (x < lower || x > upper) return 0;
         return Math.exp(-0.5 * Math.pow((x - mean) / stdDev, 2));
     }
+    
+    public double getLowerBound() {
+        return lower;
+    }
+    
+    public double getUpperBound() {
+        return upper;
+    }
 }
 
 // Bell-Shaped Membership Function
-class BellShapedMF {
+class BellShapedMF implements BoundedMembershipFunction {
+    private static final double TAIL = 1e-6;
+
     private double a, b, c;
     
     public BellShapedMF(double a, double b, double c) {
@@ -195,10 +244,25 @@ class BellShapedMF {
     public double getMembership(double x) {
         return 1.0 / (1.0 + Math.pow(Math.abs((x - c) / a), 2 * b));
     }
+    
+    // Membership falls below TAIL at |x - c| = |a| * (1/TAIL - 1)^(1/2b)
+    public double getLowerBound() {
+        return c - halfWidth();
+    }
+    
+    public double getUpperBound() {
+        return c + halfWidth();
+    }
+    
+    private double halfWidth() {
+        return Math.abs(a) * Math.pow(1.0 / TAIL - 1.0, 1.0 / (2 * b));
+    }
 }
 
 // Sigmoidal Membership Function
-class SigmoidalMF {
+class SigmoidalMF implements BoundedMembershipFunction {
+    private static final double TAIL = 1e-6;
+
     private double a, c;
     
     public SigmoidalMF(double a, double c) {
@@ -209,5 +273,204 @@ class SigmoidalMF {
     public double getMembership(double x) {
         return 1.0 / (1.0 + Math.exp(-a * (x - c)));
     }
+    
+    // Membership is within TAIL of 0 or 1 beyond |x - c| = ln(1/TAIL - 1) / |a|
+    public double getLowerBound() {
+        return c - Math.log(1.0 / TAIL - 1.0) / Math.abs(a);
+    }
+    
+    public double getUpperBound() {
+        return c + Math.log(1.0 / TAIL - 1.0) / Math.abs(a);
+    }
+}
+
+/**
+ * Lookup-table version of a membership function. It samples the function at evenly
+ * spaced points over [lower, upper] (by default the function's own bounds) and
+ * evaluates by linear interpolation, without Math.exp or Math.pow. Outside the range
+ * the wrapped function is called directly, so the error bound holds everywhere. Any
+ * function can be wrapped over an explicit range, e.g. one of Assignment2's MFs as
+ * new TabulatedMF(gaussian::getMembership, 50, 100, 1e-4).
+ *
+ * The resolution is chosen for a maximum absolute error: starting from 16 cells, the
+ * table is doubled (reusing the samples it has) until an error bound is within the
+ * target. In each cell the bound is the larger of the error measured at 7 inner points
+ * and half the larger second difference |t[i-1] - 2 t[i] + t[i+1]| at the cell's ends
+ * (the full one in the two end cells, which have a single neighbour). For a smooth
+ * function the second difference is about h^2 f'' and the error at most h^2/8 max|f''|,
+ * which leaves a margin of 4 for f'' changing between neighbouring cells. For a corner
+ * with slope change J at a fraction s of a cell (TriangularMF's peak), the error
+ * s (1 - s) h J is at most half the second difference h J max(s, 1 - s), so corners
+ * at least a cell apart are covered exactly. getErrorBound() reports the bound and
+ * getMemoryBytes() the size of the table.
+ */
+class TabulatedMF implements BoundedMembershipFunction {
+    private static final int INITIAL_CELLS = 16;
+    private static final int MAX_CELLS = 1 << 24;
+    private static final int CHECKS_PER_CELL = 7;
+    
+    private final DoubleUnaryOperator mf;
+    private final double lower, upper;
+    private final double invStep;
+    private final int cells;
+    private final double[] table;
+    private final double errorBound;
+    
+    public TabulatedMF(BoundedMembershipFunction mf, double maxError) {
+        this(mf::getMembership, mf.getLowerBound(), mf.getUpperBound(), maxError);
+    }
+    
+    public TabulatedMF(DoubleUnaryOperator mf, double lower, double upper, double maxError) {
+        if (!(maxError > 0)) throw new IllegalArgumentException("maxError must be positive: " + maxError);
+        if (!(lower < upper) || Double.isInfinite(lower) || Double.isInfinite(upper)) {
+            throw new IllegalArgumentException("Invalid table range: " + lower + " .. " + upper);
+        }
+        int n = INITIAL_CELLS;
+        double[] t = new double[n + 1];
+        for (int i = 0; i <= n; i++) t[i] = mf.applyAsDouble(point(lower, upper, n, i));
+        double error = errorBound(mf, lower, upper, t);
+        while (error > maxError) {
+            if (n >= MAX_CELLS) {
+                throw new IllegalArgumentException("Cannot reach error " + maxError + " with " + MAX_CELLS
+                        + " cells (reached " + error + ")");
+            }
+            double[] finer = new double[2 * n + 1];
+            for (int i = 0; i <= n; i++) finer[2 * i] = t[i];
+            for (int i = 0; i < n; i++) finer[2 * i + 1] = mf.applyAsDouble(point(lower, upper, 2 * n, 2 * i + 1));
+            n *= 2;
+            t = finer;
+            error = errorBound(mf, lower, upper, t);
+        }
+        this.mf = mf;
+        this.lower = lower;
+        this.upper = upper;
+        this.cells = n;
+        this.invStep = n / (upper - lower);
+        this.table = t;
+        this.errorBound = error;
+    }
+    
+    private static double point(double lower, double upper, int cells, int i) {
+        return lower + (upper - lower) * i / cells;
+    }
+    
+    // Largest per-cell bound: the second-difference bound or |table - mf| measured at
+    // CHECKS_PER_CELL points inside the cell, whichever is larger
+    private static double errorBound(DoubleUnaryOperator mf, double lower, double upper, double[] t) {
+        int n = t.length - 1;
+        double invStep = n / (upper - lower);
+        double error = 0;
+        for (int i = 0; i < n; i++) {
+            double curvature = Math.max(secondDifference(t, i), secondDifference(t, i + 1));
+            error = Math.max(error, i == 0 || i == n - 1 ? curvature : curvature / 2);
+            for (int k = 1; k <= CHECKS_PER_CELL; k++) {
+                double x = lower + (upper - lower) * (i + k / (CHECKS_PER_CELL + 1.0)) / n;
+                error = Math.max(error, Math.abs(interpolate(t, lower, invStep, x) - mf.applyAsDouble(x)));
+            }
+        }
+        return error;
+    }
+    
+    // |t[i-1] - 2 t[i] + t[i+1]|, or 0 at the ends of the table
+    private static double secondDifference(double[] t, int i) {
+        return i > 0 && i < t.length - 1 ? Math.abs(t[i - 1] - 2 * t[i] + t[i + 1]) : 0;
+    }
+    
+    private static double interpolate(double[] t, double lower, double invStep, double x) {
+        double pos = (x - lower) * invStep;
+        int i = Math.min((int) pos, t.length - 2);
+        double f = pos - i;
+        return t[i] + f * (t[i + 1] - t[i]);
+    }
+    
+    public double getMembership(double x) {
+        double pos = (x - lower) * invStep;
+        if (pos >= 0 && pos < cells) {
+            int i = (int) pos;
+            double f = pos - i;
+            return table[i] + f * (table[i + 1] - table[i]);
+        }
+        return x == upper ? table[cells] : mf.applyAsDouble(x);
+    }
+    
+    public double getLowerBound() {
+        return lower;
+    }
+    
+    public double getUpperBound() {
+        return upper;
+    }
+    
+    // Number of table points (cells + 1)
+    public int getResolution() {
+        return table.length;
+    }
+    
+    // Bound on the absolute interpolation error (see the class comment)
+    public double getErrorBound() {
+        return errorBound;
+    }
+    
+    // Size of the table: 8 bytes per point plus the array header
+    public long getMemoryBytes() {
+        return 16L + 8L * table.length;
+    }
+}
+
+/**
+ * Accuracy against speed of TabulatedMF: for the exp/pow based MFs of Assignment3 and
+ * a range of error targets, the table size, its error bound, and readings per
+ * second for the exact function and the table on uniform readings in [10, 30].
+ *
+ * Usage: java LookupTableBenchmark [readings] [repetitions]
+ */
+class LookupTableBenchmark {
+    
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        
+        double[] xs = new double[n];
+        Random rnd = new Random(1L);
+        for (int i = 0; i < n; i++) xs[i] = 10 + rnd.nextDouble() * 20;
+        double[] out = new double[n];
+        
+        String[] names = {"Gaussian(20, 5)", "Bell-Shaped(2, 3, 20)", "Sigmoidal(0.5, 20)"};
+        BoundedMembershipFunction[] mfs = {new GaussianMF(20, 5, 10, 30), new BellShapedMF(2, 3, 20), new SigmoidalMF(0.5, 20)};
+        double[] targets = {1e-3, 1e-5, 1e-7};
+        
+        System.out.println("=== Lookup-Table Membership Functions ===");
+        System.out.println("  Readings: " + n);
+        System.out.println("  Repetitions: " + repetitions);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-24s %-10s %-10s %-12s %-12s %-14s %-14s %-8s",
+                "Membership Function", "Target", "Points", "Memory(KB)", "Error Bound", "Exact/sec", "Table/sec", "Speedup"));
+        
+        // Warm up both paths with every MF so the call site stays megamorphic
+        for (BoundedMembershipFunction mf : mfs) {
+            run(mf, xs, out, 2);
+            run(new TabulatedMF(mf, targets[0]), xs, out, 2);
+        }
+        for (int m = 0; m < mfs.length; m++) {
+            long t0 = System.nanoTime();
+            run(mfs[m], xs, out, repetitions);
+            double exactRate = (double) n * repetitions / ((System.nanoTime() - t0) / 1e9);
+            for (double target : targets) {
+                TabulatedMF table = new TabulatedMF(mfs[m], target);
+                t0 = System.nanoTime();
+                run(table, xs, out, repetitions);
+                double tableRate = (double) n * repetitions / ((System.nanoTime() - t0) / 1e9);
+                System.out.println(String.format("%-24s %-10.0e %-10d %-12.1f %-12.2e %-14.3e %-14.3e %-8.2f",
+                        names[m], target, table.getResolution(), table.getMemoryBytes() / 1024.0,
+                        table.getErrorBound(), exactRate, tableRate, tableRate / exactRate));
+            }
+        }
+    }
+    
+    private static void run(BoundedMembershipFunction mf, double[] xs, double[] out, int repetitions) {
+        for (int r = 0; r < repetitions; r++) {
+            for (int i = 0; i < xs.length; i++) out[i] = mf.getMembership(xs[i]);
+        }
+    }
 }
 
@@ -0,0 +1,265 @@
+package optimize;
+
+/**
+ * n x n matrix of non-negative values stored in one flat array, used by ACO_TSP for
+ * pheromone, heuristic and choice info. The storage is picked by ACO_TSP.Storage:
+ * full or upper-triangular, in double or float precision. The triangular layouts
+ * store (i, j) and (j, i) in the same cell, so they only suit symmetric instances.
+ */
+abstract class CompactMatrix {
+    final int n;
+
+    CompactMatrix(int n) {
+        this.n = n;
+    }
+
+    static CompactMatrix create(ACO_TSP.Storage storage, int n) {
+        switch (storage) {
+            case DENSE:
+                return new Dense(n);
+            case DENSE_FLOAT:
+                return new DenseFloat(n);
+            case TRIANGULAR:
+                return new Triangular(n);
+            case TRIANGULAR_FLOAT:
+                return new TriangularFloat(n);
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+    }
+
+    abstract double get(int i, int j);
+
+    abstract void set(int i, int j, double value);
+
+    /** Adds value to (i, j) and (j, i); a triangular matrix has only one cell for both. */
+    abstract void addSymmetric(int i, int j, double value);
+
+    /** Multiplies every entry by factor. */
+    abstract void scale(double factor);
+
+    abstract boolean isSymmetric();
+
+    /** Heap bytes of the backing arrays. */
+    abstract long bytes();
+
+    /** Sum of all entries (i, j) with i != j. */
+    double sumOffDiagonal() {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) sum += get(i, j);
+            }
+        }
+        return sum;
+    }
+
+    static long cells(int n, boolean triangular) {
+        long cells = triangular ? (long) n * (n + 1) / 2 : (long) n * n;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many cities for flat " + (triangular ? "triangular" : "dense")
+                    + " storage: " + n);
+        }
+        return cells;
+    }
+
+    // Row-major upper triangle including the diagonal: cell (i, j), i <= j, is at
+    // rowStart[i] + j, where row i holds n - i cells and starts at i*n - i*(i-1)/2
+    static int[] rowStarts(int n) {
+        int[] start = new int[n];
+        for (int i = 0; i < n; i++) {
+            start[i] = (int) ((long) i * n - (long) i * (i - 1) / 2 - i);
+        }
+        return start;
+    }
+
+    static final class Dense extends CompactMatrix {
+        private final double[] a;
+
+        Dense(int n) {
+            super(n);
+            a = new double[(int) cells(n, false)];
+        }
+
+        @Override
+        double get(int i, int j) {
+            return a[i * n + j];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            a[i * n + j] = value;
+        }
+
+        @Override
+        void addSymmetric(int i, int j, double value) {
+            a[i * n + j] += value;
+            a[j * n + i] += value;
+        }
+
+        @Override
+        void scale(double factor) {
+            for (int k = 0; k < a.length; k++) a[k] *= factor;
+        }
+
+        @Override
+        boolean isSymmetric() {
+            return false;
+        }
+
+        @Override
+        long bytes() {
+            return 8L * a.length;
+        }
+    }
+
+    static final class DenseFloat extends CompactMatrix {
+        private final float[] a;
+
+        DenseFloat(int n) {
+            super(n);
+            a = new float[(int) cells(n, false)];
+        }
+
+        @Override
+        double get(int i, int j) {
+            return a[i * n + j];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            a[i * n + j] = (float) value;
+        }
+
+        @Override
+        void addSymmetric(int i, int j, double value) {
+            a[i * n + j] += (float) value;
+            a[j * n + i] += (float) value;
+        }
+
+        @Override
+        void scale(double factor) {
+            float f = (float) factor;
+            for (int k = 0; k < a.length; k++) a[k] *= f;
+        }
+
+        @Override
+        boolean isSymmetric() {
+            return false;
+        }
+
+        @Override
+        long bytes() {
+            return 4L * a.length;
+        }
+    }
+
+    static final class Triangular extends CompactMatrix {
+        private final double[] a;
+        private final int[] rowStart;
+
+        Triangular(int n) {
+            super(n);
+            a = new double[(int) cells(n, true)];
+            rowStart = rowStarts(n);
+        }
+
+        private int index(int i, int j) {
+            return i <= j ? rowStart[i] + j : rowStart[j] + i;
+        }
+
+        @Override
+        double get(int i, int j) {
+            return a[index(i, j)];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            a[index(i, j)] = value;
+        }
+
+        @Override
+        void addSymmetric(int i, int j, double value) {
+            a[index(i, j)] += value;
+        }
+
+        @Override
+        void scale(double factor) {
+            for (int k = 0; k < a.length; k++) a[k] *= factor;
+        }
+
+        @Override
+        boolean isSymmetric() {
+            return true;
+        }
+
+        @Override
+        long bytes() {
+            return 8L * a.length + 4L * rowStart.length;
+        }
+
+        @Override
+        double sumOffDiagonal() {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) sum += a[rowStart[i] + j];
+            }
+            return 2.0 * sum;
+        }
+    }
+
+    static final class TriangularFloat extends CompactMatrix {
+        private final float[] a;
+        private final int[] rowStart;
+
+        TriangularFloat(int n) {
+            super(n);
+            a = new float[(int) cells(n, true)];
+            rowStart = rowStarts(n);
+        }
+
+        private int index(int i, int j) {
+            return i <= j ? rowStart[i] + j : rowStart[j] + i;
+        }
+
+        @Override
+        double get(int i, int j) {
+            return a[index(i, j)];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            a[index(i, j)] = (float) value;
+        }
+
+        @Override
+        void addSymmetric(int i, int j, double value) {
+            a[index(i, j)] += (float) value;
+        }
+
+        @Override
+        void scale(double factor) {
+            float f = (float) factor;
+            for (int k = 0; k < a.length; k++) a[k] *= f;
+        }
+
+        @Override
+        boolean isSymmetric() {
+            return true;
+        }
+
+        @Override
+        long bytes() {
+            return 4L * a.length + 4L * rowStart.length;
+        }
+
+        @Override
+        double sumOffDiagonal() {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) sum += a[rowStart[i] + j];
+            }
+            return 2.0 * sum;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package optimize;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Unsynchronized re-implementation of java.util.Random's documented 48-bit LCG.
+ * For the same seed it produces exactly the same sequence as new Random(seed), so
+ * seeded runs do not change, but it keeps the state in a plain long instead of an
+ * AtomicLong (no CAS per draw) and can fill a buffer in one tight loop. The state
+ * can be read and restored, e.g. for ACO_TSP checkpoints.
+ * Not thread-safe: use one instance per thread.
+ */
+final class FastRandom implements RandomGenerator {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    FastRandom(long seed) {
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /** Restarts the sequence as if newly constructed with the given seed. */
+    void setSeed(long seed) {
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /** The LCG state, for setState. */
+    long state() {
+        return state;
+    }
+
+    void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        return ((long) next(32) << 32) + next(32);
+    }
+
+    /** java.util.Random.nextInt(bound): same algorithm, so the same values. */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive: " + bound);
+        int r = next(31);
+        int m = bound - 1;
+        if ((bound & m) == 0) return (int) ((bound * (long) r) >> 31);
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+            // reject values from the incomplete last interval
+        }
+        return r;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (((long) next(26) << 27) + next(27)) * DOUBLE_UNIT;
+    }
+
+    /** Fills out[from, to) with successive nextDouble() values. */
+    void fill(double[] out, int from, int to) {
+        long s = state;
+        for (int i = from; i < to; i++) {
+            s = (s * MULTIPLIER + ADDEND) & MASK;
+            long hi = s >>> (48 - 26);
+            s = (s * MULTIPLIER + ADDEND) & MASK;
+            long lo = s >>> (48 - 27);
+            out[i] = ((hi << 27) + lo) * DOUBLE_UNIT;
+        }
+        state = s;
+    }
+}
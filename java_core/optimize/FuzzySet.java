@@ -0,0 +1,162 @@
+package optimize;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Fuzzy set over a discretised Universe, holding one membership degree per point in a
+ * double[]. Operations follow java.util.BitSet: the one-argument forms modify this set
+ * and return it, so expressions chain without temporaries,
+ *   result.assign(cold).union(hot).intersection(comfortable).complement();
+ * and the forms taking dest write the result there and leave this set unchanged (dest
+ * may be this set or the other operand). Neither form allocates.
+ *
+ * Both operands must be defined over equal universes.
+ */
+public final class FuzzySet {
+    private final Universe universe;
+    private final double[] mu;
+
+    /** The empty set (all degrees 0) over universe. */
+    public FuzzySet(Universe universe) {
+        this.universe = universe;
+        this.mu = new double[universe.size()];
+    }
+
+    /** The set whose degree at each point x of universe is mf(x). */
+    public static FuzzySet of(Universe universe, DoubleUnaryOperator mf) {
+        return new FuzzySet(universe).fill(mf);
+    }
+
+    public Universe universe() {
+        return universe;
+    }
+
+    public int size() {
+        return mu.length;
+    }
+
+    /** Degree at the i-th point of the universe. */
+    public double get(int i) {
+        return mu[i];
+    }
+
+    /** Degree at the universe point closest to x. */
+    public double at(double x) {
+        return mu[universe.indexOf(x)];
+    }
+
+    public FuzzySet set(int i, double degree) {
+        mu[i] = degree;
+        return this;
+    }
+
+    /** Sets the degree at each point x to mf(x). */
+    public FuzzySet fill(DoubleUnaryOperator mf) {
+        for (int i = 0; i < mu.length; i++) mu[i] = mf.applyAsDouble(universe.get(i));
+        return this;
+    }
+
+    /** Copies the degrees of other into this set. */
+    public FuzzySet assign(FuzzySet other) {
+        check(other);
+        System.arraycopy(other.mu, 0, mu, 0, mu.length);
+        return this;
+    }
+
+    public FuzzySet copy() {
+        return new FuzzySet(universe).assign(this);
+    }
+
+    // ---- In place ----
+
+    /** max(a, b) */
+    public FuzzySet union(FuzzySet b) {
+        return union(b, this);
+    }
+
+    /** min(a, b) */
+    public FuzzySet intersection(FuzzySet b) {
+        return intersection(b, this);
+    }
+
+    /** 1 - a */
+    public FuzzySet complement() {
+        return complement(this);
+    }
+
+    /** a * b */
+    public FuzzySet algebraicProduct(FuzzySet b) {
+        return algebraicProduct(b, this);
+    }
+
+    /** a + b - a * b */
+    public FuzzySet algebraicSum(FuzzySet b) {
+        return algebraicSum(b, this);
+    }
+
+    /** max(a - b, 0) */
+    public FuzzySet difference(FuzzySet b) {
+        return difference(b, this);
+    }
+
+    // ---- Into dest ----
+
+    public FuzzySet union(FuzzySet b, FuzzySet dest) {
+        check(b);
+        check(dest);
+        double[] x = mu, y = b.mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = Math.max(x[i], y[i]);
+        return dest;
+    }
+
+    public FuzzySet intersection(FuzzySet b, FuzzySet dest) {
+        check(b);
+        check(dest);
+        double[] x = mu, y = b.mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = Math.min(x[i], y[i]);
+        return dest;
+    }
+
+    public FuzzySet complement(FuzzySet dest) {
+        check(dest);
+        double[] x = mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = 1 - x[i];
+        return dest;
+    }
+
+    public FuzzySet algebraicProduct(FuzzySet b, FuzzySet dest) {
+        check(b);
+        check(dest);
+        double[] x = mu, y = b.mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = x[i] * y[i];
+        return dest;
+    }
+
+    public FuzzySet algebraicSum(FuzzySet b, FuzzySet dest) {
+        check(b);
+        check(dest);
+        double[] x = mu, y = b.mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = x[i] + y[i] - x[i] * y[i];
+        return dest;
+    }
+
+    public FuzzySet difference(FuzzySet b, FuzzySet dest) {
+        check(b);
+        check(dest);
+        double[] x = mu, y = b.mu, out = dest.mu;
+        for (int i = 0; i < out.length; i++) out[i] = Math.max(x[i] - y[i], 0);
+        return dest;
+    }
+
+    private void check(FuzzySet other) {
+        if (other.universe != universe && !other.universe.equals(universe)) {
+            throw new IllegalArgumentException("Fuzzy sets over different universes: " + universe + " and " + other.universe);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzySet" + Arrays.toString(mu);
+    }
+}
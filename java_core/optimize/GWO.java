@@ -3,27 +3,73 @@ package optimize;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 
 public class GWO {
+    /**
+     * Dimensions per chunk in withDimensionChunks(): 8 KB of the wolf and of each leader
+     * plus 48 KB of coefficients, so a chunk's working set stays inside a typical L2 cache.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
     public interface FitnessFunction {
         double evaluate(double[] x);
+
+        /**
+         * Evaluates rows [from, to) of a row-major position block (row i starts at
+         * i * dims) and writes the fitness of row i to out[i]. The default copies each
+         * row and calls evaluate(); vectorised or native objectives can override it to
+         * amortise setup across the pack.
+         */
+        default void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+            double[] row = new double[dims];
+            for (int i = from; i < to; i++) {
+                System.arraycopy(positions, i * dims, row, 0, dims);
+                out[i] = evaluate(row);
+            }
+        }
+
+        default void evaluateBatch(double[] flatPositions, int count, int dims, double[] out) {
+            evaluateBatch(flatPositions, 0, count, dims, out);
+        }
+    }
+
+    /**
+     * An objective that is a sum of per-dimension terms. partialSum(x, off, from, to)
+     * returns the sum of the terms for dimensions [from, to) of the row starting at
+     * x[off], so the partial sums of disjoint ranges add up to evaluate(). The
+     * dimension-chunked mode evaluates such objectives chunk by chunk in parallel.
+     */
+    public interface SeparableFunction extends FitnessFunction {
+        double partialSum(double[] x, int off, int from, int to);
     }
 
     public static class Result {
         public final double[] bestPosition;
         public final double bestFitness;
         public final List<IterationLog> history;
+        public final TerminationPolicy.StopReason stopReason;
+        public final long evaluations;
         
         public Result(double[] bestPosition, double bestFitness, List<IterationLog> history) {
+            this(bestPosition, bestFitness, history, TerminationPolicy.StopReason.MAX_ITERATIONS, 0);
+        }
+
+        public Result(double[] bestPosition, double bestFitness, List<IterationLog> history,
+                      TerminationPolicy.StopReason stopReason, long evaluations) {
             this.bestPosition = bestPosition;
             this.bestFitness = bestFitness;
             this.history = history;
+            this.stopReason = stopReason;
+            this.evaluations = evaluations;
         }
     }
 
@@ -48,16 +94,36 @@ public class GWO {
         }
     }
 
+    /**
+     * Receives IterationLog records while the run is in progress, e.g. to stream them to
+     * disk (see csvStream). onFinish is called once with the final result.
+     */
+    public interface IterationListener {
+        void onIteration(IterationLog log);
+
+        default void onFinish(Result result) {}
+    }
+
     private final int wolfCount;
     private final int dimensions;
     private final int iterations;
     private final double[] lower;
     private final double[] upper;
     private final FitnessFunction fitness;
-    private final Random rnd;
+    private final long seed;
+    private final FastRandom rnd;
     private final boolean verbose;
     private final int logInterval;
 
+    // Synchronous-update mode (see withSynchronousUpdate)
+    private boolean synchronous;
+    private ForkJoinPool pool;
+    private TerminationPolicy termination = new TerminationPolicy();
+    private int chunkSize;  // dimension-chunked mode when > 0
+    private HistoryPolicy history = HistoryPolicy.all();
+    private final List<IterationListener> listeners = new ArrayList<>();
+    private final List<HistoryPolicy> listenerPolicies = new ArrayList<>();
+
     public GWO(int wolfCount, int dimensions, int iterations,
                double[] lower, double[] upper,
                FitnessFunction fitness, long seed) {
@@ -74,11 +140,107 @@ public class GWO {
         this.lower = Arrays.copyOf(lower, lower.length);
         this.upper = Arrays.copyOf(upper, upper.length);
         this.fitness = fitness;
-        this.rnd = new Random(seed);
+        this.seed = seed;
+        this.rnd = new FastRandom(seed);
         this.verbose = verbose;
         this.logInterval = logInterval;
     }
 
+    /**
+     * Switches to synchronous updates on the calling thread; see withSynchronousUpdate(ForkJoinPool).
+     */
+    public GWO withSynchronousUpdate() {
+        return withSynchronousUpdate(null);
+    }
+
+    /**
+     * Switches to synchronous updates: alpha, beta and delta are snapshotted at the start
+     * of each iteration, every wolf moves against that snapshot and the pack is evaluated
+     * with one evaluateBatch() call per block. Each block keeps its own top 3, and the
+     * partial results are merged into the leaders once per iteration. Every wolf draws
+     * from its own random stream, so for a given seed the result does not depend on how
+     * many threads the pool has. Pass null to run on the calling thread. The fitness
+     * function must be thread-safe when a pool is given.
+     */
+    public GWO withSynchronousUpdate(ForkJoinPool pool) {
+        this.synchronous = true;
+        this.chunkSize = 0;
+        this.pool = pool;
+        return this;
+    }
+
+    /** Dimension-chunked updates with chunks of DEFAULT_CHUNK_SIZE dimensions. */
+    public GWO withDimensionChunks(ForkJoinPool pool) {
+        return withDimensionChunks(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * For very high-dimensional problems with small packs: wolves still move one at a
+     * time as in the default update, but each wolf's dimensions are split into chunks that
+     * are moved in parallel. Chunk c always covers the same dimensions and draws from its
+     * own random stream, so for a given seed the result does not depend on how many
+     * threads the pool has. SeparableFunction objectives (sphere, rastrigin) are evaluated
+     * as per-chunk partial sums; other objectives are evaluated on the calling thread.
+     * Replaces synchronous update mode.
+     */
+    public GWO withDimensionChunks(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        this.synchronous = false;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        return this;
+    }
+
+    /** Stops the run early according to the given policy (by default only the iteration count applies). */
+    public GWO withTermination(TerminationPolicy termination) {
+        this.termination = termination;
+        return this;
+    }
+
+    /**
+     * Chooses which iterations are kept in Result.history. With summaryOnly() the
+     * history is null; use a listener to stream iterations instead of holding them.
+     */
+    public GWO withHistory(HistoryPolicy history) {
+        this.history = history;
+        return this;
+    }
+
+    /** Notifies the listener of every iteration. */
+    public GWO addListener(IterationListener listener) {
+        return addListener(listener, HistoryPolicy.all());
+    }
+
+    /** Notifies the listener of the iterations selected by the policy. */
+    public GWO addListener(IterationListener listener, HistoryPolicy policy) {
+        listeners.add(listener);
+        listenerPolicies.add(policy);
+        return this;
+    }
+
+    /**
+     * Listener that writes each iteration to a CSV file (same format as exportToCSV)
+     * as soon as it completes; the file is closed when the run finishes.
+     */
+    public IterationListener csvStream(String filename) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(filename));
+        writeCsvHeader(writer);
+        return new IterationListener() {
+            @Override
+            public void onIteration(IterationLog log) {
+                writeCsvRow(writer, log);
+            }
+
+            @Override
+            public void onFinish(Result result) {
+                writer.close();
+                if (writer.checkError()) {
+                    throw new UncheckedIOException(new IOException("Error writing CSV: " + filename));
+                }
+            }
+        };
+    }
+
     public Result optimize() {
         if (verbose) {
             System.out.println("=== Grey Wolf Optimizer (GWO) ===");
@@ -87,47 +249,22 @@ public class GWO {
             System.out.println("  Dimensions: " + dimensions);
             System.out.println("  Iterations: " + iterations);
             System.out.println("  Bounds: [" + lower[0] + ", " + upper[0] + "]");
-            System.out.println("----------------------------------------");
-        }
-
-        double[][] X = new double[wolfCount][dimensions];
-        double[] currentFit = new double[wolfCount];
-        
-        // Initialize wolves randomly
-        for (int i = 0; i < wolfCount; i++) {
-            for (int d = 0; d < dimensions; d++) {
-                X[i][d] = lower[d] + rnd.nextDouble() * (upper[d] - lower[d]);
+            if (synchronous) {
+                System.out.println("  Update: synchronous (" + (pool != null ? pool.getParallelism() + " threads" : "caller thread") + ")");
             }
-            currentFit[i] = fitness.evaluate(X[i]);
-        }
-
-        double[] Xalpha = null, Xbeta = null, Xdelta = null;
-        double falpha = Double.POSITIVE_INFINITY;
-        double fbeta = Double.POSITIVE_INFINITY;
-        double fdelta = Double.POSITIVE_INFINITY;
-
-        // Initialize alpha, beta, delta (top 3 wolves)
-        for (int i = 0; i < wolfCount; i++) {
-            double f = currentFit[i];
-            if (f < falpha) {
-                fdelta = fbeta;
-                Xdelta = Xbeta;
-                fbeta = falpha;
-                Xbeta = Xalpha;
-                falpha = f;
-                Xalpha = Arrays.copyOf(X[i], dimensions);
-            } else if (f < fbeta) {
-                fdelta = fbeta;
-                Xdelta = Xbeta;
-                fbeta = f;
-                Xbeta = Arrays.copyOf(X[i], dimensions);
-            } else if (f < fdelta) {
-                fdelta = f;
-                Xdelta = Arrays.copyOf(X[i], dimensions);
+            if (chunkSize > 0) {
+                System.out.println("  Update: dimension chunks of " + chunkSize + " (" + (pool != null ? pool.getParallelism() + " threads" : "caller thread") + ")");
             }
+            System.out.println("----------------------------------------");
         }
 
-        List<IterationLog> history = new ArrayList<>();
+        long evaluations = wolfCount;
+        TerminationPolicy.Monitor monitor = termination.start(evaluations);
+        Pack pack = newPack();
+        TerminationPolicy.StopReason stopReason = monitor.check(0, pack.falpha, evaluations, wolfCount, pack::diameter);
+
+        List<IterationLog> retained = history.isSummaryOnly() ? null : new ArrayList<>();
+        double previousBest = pack.falpha;
 
         if (verbose) {
             System.out.println("\nStarting optimization...\n");
@@ -136,83 +273,54 @@ public class GWO {
             System.out.println("--------------------------------------------------------------------------------");
         }
 
-        for (int t = 0; t < iterations; t++) {
+        for (int t = 0; t < iterations && stopReason == null; t++) {
             // Convergence parameter: decreases linearly from 2 to 0
             double a = 2.0 - 2.0 * (t / (double) iterations);
-            
-            for (int i = 0; i < wolfCount; i++) {
-                for (int d = 0; d < dimensions; d++) {
-                    // Generate random coefficients for alpha
-                    double r1 = rnd.nextDouble();
-                    double r2 = rnd.nextDouble();
-                    double A1 = 2 * a * r1 - a;
-                    double C1 = 2 * r2;
-
-                    // Generate random coefficients for beta
-                    r1 = rnd.nextDouble();
-                    r2 = rnd.nextDouble();
-                    double A2 = 2 * a * r1 - a;
-                    double C2 = 2 * r2;
-
-                    // Generate random coefficients for delta
-                    r1 = rnd.nextDouble();
-                    r2 = rnd.nextDouble();
-                    double A3 = 2 * a * r1 - a;
-                    double C3 = 2 * r2;
-
-                    // Calculate distances
-                    double Dalpha = Math.abs(C1 * Xalpha[d] - X[i][d]);
-                    double Dbeta  = Math.abs(C2 * Xbeta[d]  - X[i][d]);
-                    double Ddelta = Math.abs(C3 * Xdelta[d] - X[i][d]);
-
-                    // Calculate new positions based on alpha, beta, delta
-                    double X1 = Xalpha[d] - A1 * Dalpha;
-                    double X2 = Xbeta[d]  - A2 * Dbeta;
-                    double X3 = Xdelta[d] - A3 * Ddelta;
-
-                    // Update position (average of three leaders)
-                    double newPos = (X1 + X2 + X3) / 3.0;
-                    
-                    // Apply boundary constraints
-                    if (newPos < lower[d]) newPos = lower[d];
-                    if (newPos > upper[d]) newPos = upper[d];
-                    X[i][d] = newPos;
-                }
-                
-                // Evaluate fitness
-                double f = fitness.evaluate(X[i]);
-                currentFit[i] = f;
-                
-                // Update alpha, beta, delta
-                if (f < falpha) {
-                    fdelta = fbeta;
-                    Xdelta = Xbeta;
-                    fbeta = falpha;
-                    Xbeta = Xalpha;
-                    falpha = f;
-                    Xalpha = Arrays.copyOf(X[i], dimensions);
-                } else if (f < fbeta) {
-                    fdelta = fbeta;
-                    Xdelta = Xbeta;
-                    fbeta = f;
-                    Xbeta = Arrays.copyOf(X[i], dimensions);
-                } else if (f < fdelta) {
-                    fdelta = f;
-                    Xdelta = Arrays.copyOf(X[i], dimensions);
-                }
+
+            pack.step(a);
+            evaluations += wolfCount;
+
+            double[] currentFit = pack.currentFit;
+            double[] Xalpha = pack.Xalpha;
+            double falpha = pack.falpha;
+            boolean improved = falpha < previousBest;
+            previousBest = falpha;
+
+            // Check termination
+            stopReason = monitor.check(t + 1, falpha, evaluations, wolfCount, pack::diameter);
+
+            // Only build a log (and copy alpha) for iterations somebody records or prints
+            boolean last = t == iterations - 1 || stopReason != null;
+            boolean retain = retained != null && history.records(t + 1, improved, last);
+            boolean notify = false;
+            for (HistoryPolicy policy : listenerPolicies) {
+                notify |= policy.records(t + 1, improved, last);
             }
+            boolean print = verbose && ((t + 1) % logInterval == 0 || t == 0 || last);
+            if (!retain && !notify && !print) continue;
 
             // Calculate statistics
-            double avgFit = Arrays.stream(currentFit).average().orElse(0.0);
-            double minFit = Arrays.stream(currentFit).min().orElse(0.0);
-            double maxFit = Arrays.stream(currentFit).max().orElse(0.0);
+            double sumFit = 0.0;
+            double minFit = Double.POSITIVE_INFINITY;
+            double maxFit = Double.NEGATIVE_INFINITY;
+            for (double f : currentFit) {
+                sumFit += f;
+                if (f < minFit) minFit = f;
+                if (f > maxFit) maxFit = f;
+            }
+            double avgFit = sumFit / wolfCount;
 
             // Log iteration
-            IterationLog log = new IterationLog(t + 1, falpha, Xalpha, avgFit, minFit, maxFit, a);
-            history.add(log);
+            if (retain || notify) {
+                IterationLog log = new IterationLog(t + 1, falpha, Xalpha, avgFit, minFit, maxFit, a);
+                if (retain) retained.add(log);
+                for (int l = 0; l < listeners.size(); l++) {
+                    if (listenerPolicies.get(l).records(t + 1, improved, last)) listeners.get(l).onIteration(log);
+                }
+            }
 
             // Print progress
-            if (verbose && ((t + 1) % logInterval == 0 || t == 0 || t == iterations - 1)) {
+            if (print) {
                 String posStr = Arrays.toString(Xalpha);
                 if (posStr.length() > 28) posStr = posStr.substring(0, 25) + "...";
                 System.out.println(String.format("%-10d %-15.6f %-30s %-15.6f %-15.6f %-15.6f %-10.4f",
@@ -220,100 +328,492 @@ public class GWO {
             }
         }
 
+        if (stopReason == null) stopReason = TerminationPolicy.StopReason.MAX_ITERATIONS;
+
         if (verbose) {
             System.out.println("--------------------------------------------------------------------------------");
             System.out.println("\nOptimization Complete!");
-            System.out.println("Final Alpha Fitness: " + falpha);
-            System.out.println("Final Alpha Position: " + Arrays.toString(Xalpha));
+            System.out.println("Stop Reason: " + stopReason + " after " + evaluations + " evaluations");
+            System.out.println("Final Alpha Fitness: " + pack.falpha);
+            System.out.println("Final Alpha Position: " + Arrays.toString(pack.Xalpha));
         }
 
-        return new Result(Xalpha, falpha, history);
+        Result result = new Result(pack.Xalpha, pack.falpha, retained, stopReason, evaluations);
+        for (IterationListener listener : listeners) listener.onFinish(result);
+        return result;
     }
 
-    public void exportToCSV(Result result, String filename) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            // Write header
-            writer.print("iteration,alpha_fitness");
-            for (int d = 0; d < dimensions; d++) {
-                writer.print(",alpha_dim" + d);
+    /** Creates and initializes the pack state; used by optimize() and GWOBenchmark. */
+    Pack newPack() {
+        Pack pack = new Pack();
+        pack.initialize();
+        return pack;
+    }
+
+    /**
+     * Pack state for one optimize() run. Wolf positions are stored row-major in one flat
+     * array: wolf i occupies [i * dimensions, (i + 1) * dimensions). The asynchronous step
+     * is the classic loop where a new leader is visible to the very next wolf; the
+     * synchronous step moves the whole pack against the leaders of the previous iteration.
+     *
+     * After initialization a step allocates nothing: the three leader positions live in
+     * preallocated buffers that are rotated when a leader is demoted, and each wolf's six
+     * random coefficients per dimension are drawn in one bulk fill into a scratch buffer.
+     * In synchronous mode each block of wolves has its own coefficient buffer and top-3
+     * slots, so blocks can run on different threads without sharing mutable state.
+     */
+    final class Pack {
+        final double[] X;
+        final double[] currentFit = new double[wolfCount];
+        double[] Xalpha = new double[dimensions];
+        double[] Xbeta = new double[dimensions];
+        double[] Xdelta = new double[dimensions];
+        double falpha = Double.POSITIVE_INFINITY;
+        double fbeta = Double.POSITIVE_INFINITY;
+        double fdelta = Double.POSITIVE_INFINITY;
+
+        private final double[] row = new double[dimensions];
+        private final double[] coef = new double[6 * dimensions];
+
+        // Synchronous mode: one stream per wolf, per-block scratch and partial top 3
+        private final SplittableRandom[] streams;
+        private final double[][] blockCoef;
+        private final int[] blockTop;
+        private final double[] blockTopFit;
+        private final Parallel.BlockBody moveBlock = this::moveBlock;
+        private double stepA;
+
+        // Dimension-chunked mode: one stream and one partial sum per chunk; null otherwise
+        private final SplittableRandom[] chunkStreams;
+        private final double[] partial;
+        private final SeparableFunction separable;
+        private final Parallel.BlockBody initChunk = this::initChunk;
+        private final Parallel.BlockBody moveChunk = this::moveChunk;
+        private int chunkWolf;
+
+        Pack() {
+            long cells = (long) wolfCount * dimensions;
+            if (cells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Pack too large for flat storage: " + wolfCount + " x " + dimensions);
+            }
+            X = new double[(int) cells];
+
+            if (synchronous) {
+                // Split in wolf order so every wolf's stream is independent of threads
+                SplittableRandom root = new SplittableRandom(seed);
+                streams = new SplittableRandom[wolfCount];
+                for (int i = 0; i < wolfCount; i++) streams[i] = root.split();
+                int blocks = Parallel.blockCount(pool, wolfCount);
+                blockCoef = new double[blocks][6 * dimensions];
+                blockTop = new int[blocks * 3];
+                blockTopFit = new double[blocks * 3];
+            } else {
+                streams = null;
+                blockCoef = null;
+                blockTop = null;
+                blockTopFit = null;
             }
-            writer.println(",avg_fitness,min_fitness,max_fitness,a_value");
 
-            // Write data
-            for (IterationLog log : result.history) {
-                writer.print(log.iteration + "," + log.alphaFitness);
-                for (int d = 0; d < dimensions; d++) {
-                    writer.print("," + log.alphaPosition[d]);
+            if (chunkSize > 0) {
+                // One stream per chunk, split in chunk order
+                SplittableRandom root = new SplittableRandom(seed);
+                chunkStreams = new SplittableRandom[Parallel.chunkCount(dimensions, chunkSize)];
+                for (int c = 0; c < chunkStreams.length; c++) chunkStreams[c] = root.split();
+                partial = new double[chunkStreams.length];
+                separable = fitness instanceof SeparableFunction ? (SeparableFunction) fitness : null;
+            } else {
+                chunkStreams = null;
+                partial = null;
+                separable = null;
+            }
+        }
+
+        void initialize() {
+            // Initialize wolves randomly
+            for (int i = 0; i < wolfCount; i++) {
+                if (chunkStreams != null) {
+                    chunkWolf = i;
+                    Parallel.forChunks(pool, dimensions, chunkSize, initChunk);
+                } else {
+                    initRange(i, rnd, 0, dimensions);
                 }
-                writer.println("," + log.avgFitness + "," + log.minFitness + "," + log.maxFitness + "," + log.aValue);
+            }
+            // On the pool only in synchronous mode: with dimension chunks the fitness
+            // function need not be thread-safe
+            Parallel.forRange(synchronous ? pool : null, wolfCount,
+                (from, to) -> fitness.evaluateBatch(X, from, to, dimensions, currentFit));
+
+            // Initialize alpha, beta, delta (top 3 wolves)
+            for (int i = 0; i < wolfCount; i++) {
+                offerLeader(i, currentFit[i]);
+            }
+        }
+
+        private void initChunk(int chunk, int from, int to) {
+            initRange(chunkWolf, chunkStreams[chunk], from, to);
+        }
+
+        private void initRange(int i, RandomGenerator g, int from, int to) {
+            int off = i * dimensions;
+            for (int d = from; d < to; d++) {
+                X[off + d] = lower[d] + g.nextDouble() * (upper[d] - lower[d]);
+            }
+        }
+
+        void step(double a) {
+            if (synchronous) {
+                stepSynchronous(a);
+            } else if (chunkStreams != null) {
+                stepChunked(a);
+            } else {
+                stepAsynchronous(a);
+            }
+        }
+
+        void stepAsynchronous(double a) {
+            for (int i = 0; i < wolfCount; i++) {
+                // Random coefficients r1, r2 for alpha, beta and delta, six per dimension
+                rnd.fill(coef, 0, coef.length);
+                moveWolf(i, a, coef);
+
+                // Evaluate fitness
+                System.arraycopy(X, i * dimensions, row, 0, dimensions);
+                double f = fitness.evaluate(row);
+                currentFit[i] = f;
+
+                // Update alpha, beta, delta
+                offerLeader(i, f);
+            }
+        }
+
+        void stepChunked(double a) {
+            stepA = a;
+            for (int i = 0; i < wolfCount; i++) {
+                // Move (and for separable objectives, evaluate) the wolf chunk by chunk
+                chunkWolf = i;
+                Parallel.forChunks(pool, dimensions, chunkSize, moveChunk);
+
+                double f;
+                if (separable != null) {
+                    f = 0.0;
+                    for (double p : partial) f += p;
+                } else {
+                    System.arraycopy(X, i * dimensions, row, 0, dimensions);
+                    f = fitness.evaluate(row);
+                }
+                currentFit[i] = f;
+                offerLeader(i, f);
+            }
+        }
+
+        private void moveChunk(int chunk, int from, int to) {
+            SplittableRandom stream = chunkStreams[chunk];
+            for (int k = 6 * from; k < 6 * to; k++) coef[k] = stream.nextDouble();
+            moveWolf(chunkWolf, stepA, coef, from, to);
+            if (separable != null) partial[chunk] = separable.partialSum(X, chunkWolf * dimensions, from, to);
+        }
+
+        void stepSynchronous(double a) {
+            // Leaders are a read-only snapshot until every block has moved and evaluated
+            stepA = a;
+            Parallel.forBlocks(pool, wolfCount, moveBlock);
+
+            // Merge the partial top 3s in block order, each in wolf order, so ties resolve
+            // exactly as a single sequential scan would
+            int blocks = blockTopFit.length / 3;
+            for (int b = 0; b < blocks; b++) {
+                int base = b * 3;
+                sortByWolf(base);
+                for (int k = base; k < base + 3; k++) {
+                    if (blockTop[k] >= 0) offerLeader(blockTop[k], blockTopFit[k]);
+                }
+            }
+        }
+
+        private void moveBlock(int block, int from, int to) {
+            double[] c = blockCoef[block];
+            for (int i = from; i < to; i++) {
+                SplittableRandom stream = streams[i];
+                for (int k = 0; k < c.length; k++) c[k] = stream.nextDouble();
+                moveWolf(i, stepA, c);
+            }
+            fitness.evaluateBatch(X, from, to, dimensions, currentFit);
+            blockTop3(block, from, to);
+        }
+
+        private void blockTop3(int block, int from, int to) {
+            int base = block * 3;
+            int i0 = -1, i1 = -1, i2 = -1;
+            double f0 = Double.POSITIVE_INFINITY, f1 = Double.POSITIVE_INFINITY, f2 = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double f = currentFit[i];
+                if (f < f0) {
+                    i2 = i1; f2 = f1;
+                    i1 = i0; f1 = f0;
+                    i0 = i; f0 = f;
+                } else if (f < f1) {
+                    i2 = i1; f2 = f1;
+                    i1 = i; f1 = f;
+                } else if (f < f2) {
+                    i2 = i; f2 = f;
+                }
+            }
+            blockTop[base] = i0;
+            blockTop[base + 1] = i1;
+            blockTop[base + 2] = i2;
+            blockTopFit[base] = f0;
+            blockTopFit[base + 1] = f1;
+            blockTopFit[base + 2] = f2;
+        }
+
+        // Three-element insertion sort of one block's candidates by wolf index (-1 = empty, last)
+        private void sortByWolf(int base) {
+            for (int k = base + 1; k < base + 3; k++) {
+                int idx = blockTop[k];
+                double f = blockTopFit[k];
+                int j = k - 1;
+                while (j >= base && idx >= 0 && (blockTop[j] < 0 || blockTop[j] > idx)) {
+                    blockTop[j + 1] = blockTop[j];
+                    blockTopFit[j + 1] = blockTopFit[j];
+                    j--;
+                }
+                blockTop[j + 1] = idx;
+                blockTopFit[j + 1] = f;
+            }
+        }
+
+        double diameter() {
+            return TerminationPolicy.boundingDiameter(X, wolfCount, dimensions);
+        }
+
+        // coef holds this wolf's r1, r2 for alpha, beta and delta: six per dimension
+        private void moveWolf(int i, double a, double[] coef) {
+            moveWolf(i, a, coef, 0, dimensions);
+        }
+
+        // Same move restricted to dimensions [from, to)
+        private void moveWolf(int i, double a, double[] coef, int from, int to) {
+            int off = i * dimensions;
+
+            for (int d = from; d < to; d++) {
+                int c = 6 * d;
+
+                // Coefficients for alpha
+                double A1 = 2 * a * coef[c] - a;
+                double C1 = 2 * coef[c + 1];
+
+                // Coefficients for beta
+                double A2 = 2 * a * coef[c + 2] - a;
+                double C2 = 2 * coef[c + 3];
+
+                // Coefficients for delta
+                double A3 = 2 * a * coef[c + 4] - a;
+                double C3 = 2 * coef[c + 5];
+
+                double x = X[off + d];
+
+                // Calculate distances
+                double Dalpha = Math.abs(C1 * Xalpha[d] - x);
+                double Dbeta  = Math.abs(C2 * Xbeta[d]  - x);
+                double Ddelta = Math.abs(C3 * Xdelta[d] - x);
+
+                // Calculate new positions based on alpha, beta, delta
+                double X1 = Xalpha[d] - A1 * Dalpha;
+                double X2 = Xbeta[d]  - A2 * Dbeta;
+                double X3 = Xdelta[d] - A3 * Ddelta;
+
+                // Update position (average of three leaders)
+                double newPos = (X1 + X2 + X3) / 3.0;
+
+                // Apply boundary constraints
+                if (newPos < lower[d]) newPos = lower[d];
+                if (newPos > upper[d]) newPos = upper[d];
+                X[off + d] = newPos;
+            }
+        }
+
+        // Inserts wolf i into the top 3; the demoted delta buffer is reused for the newcomer
+        private void offerLeader(int i, double f) {
+            int off = i * dimensions;
+            if (f < falpha) {
+                double[] free = Xdelta;
+                fdelta = fbeta;
+                Xdelta = Xbeta;
+                fbeta = falpha;
+                Xbeta = Xalpha;
+                falpha = f;
+                Xalpha = free;
+                System.arraycopy(X, off, Xalpha, 0, dimensions);
+            } else if (f < fbeta) {
+                double[] free = Xdelta;
+                fdelta = fbeta;
+                Xdelta = Xbeta;
+                fbeta = f;
+                Xbeta = free;
+                System.arraycopy(X, off, Xbeta, 0, dimensions);
+            } else if (f < fdelta) {
+                fdelta = f;
+                System.arraycopy(X, off, Xdelta, 0, dimensions);
+            }
+        }
+    }
+
+    public void exportToCSV(Result result, String filename) throws IOException {
+        if (result.history == null) {
+            throw new IllegalStateException("No history was retained; use csvStream to write iterations during the run");
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            writeCsvHeader(writer);
+            for (IterationLog log : result.history) {
+                writeCsvRow(writer, log);
             }
         }
     }
 
+    private void writeCsvHeader(PrintWriter writer) {
+        writer.print("iteration,alpha_fitness");
+        for (int d = 0; d < dimensions; d++) {
+            writer.print(",alpha_dim" + d);
+        }
+        writer.println(",avg_fitness,min_fitness,max_fitness,a_value");
+    }
+
+    private void writeCsvRow(PrintWriter writer, IterationLog log) {
+        writer.print(log.iteration + "," + log.alphaFitness);
+        for (int d = 0; d < dimensions; d++) {
+            writer.print("," + log.alphaPosition[d]);
+        }
+        writer.println("," + log.avgFitness + "," + log.minFitness + "," + log.maxFitness + "," + log.aValue);
+    }
+
     // ============================================================================
     // BENCHMARK FUNCTIONS - Change the function here to test different objectives
     // ============================================================================
     
-    public static FitnessFunction sphere() {
+    /**
+     * A benchmark objective written against x[off, off + n), so the same code serves
+     * evaluate() on a single row and evaluateBatch() directly on flat pack storage.
+     */
+    interface RowFunction {
+        double apply(double[] x, int off, int n);
+    }
+
+    static FitnessFunction batchNative(RowFunction f) {
+        return new FitnessFunction() {
+            @Override
+            public double evaluate(double[] x) {
+                return f.apply(x, 0, x.length);
+            }
+
+            @Override
+            public void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+                for (int i = from; i < to; i++) {
+                    out[i] = f.apply(positions, i * dims, dims);
+                }
+            }
+        };
+    }
+
+    // For a RowFunction whose value over [off, off + n) is the sum of its values over any
+    // split of that range into pieces, e.g. a plain sum of per-coordinate terms
+    static SeparableFunction separable(RowFunction f) {
+        return new SeparableFunction() {
+            @Override
+            public double evaluate(double[] x) {
+                return f.apply(x, 0, x.length);
+            }
+
+            @Override
+            public void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+                for (int i = from; i < to; i++) {
+                    out[i] = f.apply(positions, i * dims, dims);
+                }
+            }
+
+            @Override
+            public double partialSum(double[] x, int off, int from, int to) {
+                return f.apply(x, off + from, to - from);
+            }
+        };
+    }
+
+    public static SeparableFunction sphere() {
         // Sphere function: f(x) = sum(x_i^2)
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.12, 5.12]
-        return (x) -> {
+        return separable((x, off, n) -> {
             double sum = 0;
-            for (double v : x) sum += v * v;
+            for (int i = off; i < off + n; i++) sum += x[i] * x[i];
             return sum;
-        };
+        });
     }
     
-    public static FitnessFunction rastrigin() {
+    public static SeparableFunction rastrigin() {
         // Rastrigin function: f(x) = 10*n + sum(x_i^2 - 10*cos(2*pi*x_i))
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.12, 5.12]
-        return (x) -> {
+        return separable((x, off, n) -> {
             double A = 10.0;
-            double sum = A * x.length;
-            for (double v : x) {
-                sum += v * v - A * Math.cos(2 * Math.PI * v);
+            double sum = A * n;
+            for (int i = off; i < off + n; i++) {
+                sum += x[i] * x[i] - A * Math.cos(2 * Math.PI * x[i]);
             }
             return sum;
-        };
+        });
     }
     
     public static FitnessFunction rosenbrock() {
         // Rosenbrock function: f(x) = sum(100*(x_{i+1} - x_i^2)^2 + (1 - x_i)^2)
         // Global minimum: f(1,1,...,1) = 0
         // Bounds: [-2.0, 2.0]
-        return (x) -> {
+        return batchNative((x, off, n) -> {
             double sum = 0;
-            for (int i = 0; i < x.length - 1; i++) {
-                sum += 100 * Math.pow(x[i + 1] - x[i] * x[i], 2) + Math.pow(1 - x[i], 2);
+            for (int i = off; i < off + n - 1; i++) {
+                double a = x[i + 1] - x[i] * x[i];
+                double b = 1 - x[i];
+                sum += 100 * (a * a) + b * b;
             }
             return sum;
-        };
+        });
     }
     
     public static FitnessFunction ackley() {
         // Ackley function: f(x) = -20*exp(-0.2*sqrt(mean(x^2))) - exp(mean(cos(2*pi*x))) + 20 + e
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.0, 5.0]
-        return (x) -> {
+        return batchNative((x, off, n) -> {
             double a = 20;
             double b = 0.2;
             double c = 2 * Math.PI;
             
             double sumSq = 0;
             double sumCos = 0;
-            for (double v : x) {
-                sumSq += v * v;
-                sumCos += Math.cos(c * v);
+            for (int i = off; i < off + n; i++) {
+                sumSq += x[i] * x[i];
+                sumCos += Math.cos(c * x[i]);
             }
             
-            double n = x.length;
             double term1 = -a * Math.exp(-b * Math.sqrt(sumSq / n));
             double term2 = -Math.exp(sumCos / n);
             
             return term1 + term2 + a + Math.E;
-        };
+        });
+    }
+    
+    public static FitnessFunction griewank() {
+        // Griewank function: f(x) = 1 + sum(x_i^2/4000) - product(cos(x_i/sqrt(i)))
+        // Global minimum: f(0,0,...,0) = 0
+        // Bounds: [-600, 600]
+        return batchNative((x, off, n) -> {
+            double sum = 0;
+            double product = 1;
+            for (int i = 0; i < n; i++) {
+                double xi = x[off + i];
+                sum += xi * xi / 4000.0;
+                product *= Math.cos(xi / Math.sqrt(i + 1));
+            }
+            return 1 + sum - product;
+        });
     }
 
     public static void main(String[] args) {
@@ -324,13 +824,14 @@ public class GWO {
         int dim = 2;  // Number of dimensions
         
         // Choose your objective function here:
-        // Options: sphere(), rastrigin(), rosenbrock(), ackley()
+        // Options: sphere(), rastrigin(), rosenbrock(), ackley(), griewank()
         FitnessFunction objective = rastrigin();  // <-- CHANGE THIS LINE
         
         // Set bounds according to the function you choose:
         // Sphere/Rastrigin: [-5.12, 5.12]
         // Rosenbrock: [-2.0, 2.0]
         // Ackley: [-5.0, 5.0]
+        // Griewank: [-600, 600]
         double[] lo = new double[dim];
         double[] hi = new double[dim];
         Arrays.fill(lo, -5.12);  // <-- CHANGE LOWER BOUND
@@ -342,12 +843,18 @@ public class GWO {
         long seed = 123L;
         
         // Function name for CSV filename
-        String functionName = "rastrigin";  // <-- CHANGE THIS (sphere, rastrigin, rosenbrock, ackley)
+        String functionName = "rastrigin";  // <-- CHANGE THIS (sphere, rastrigin, rosenbrock, ackley, griewank)
 
         // ========================================================================
         // RUN OPTIMIZATION
         // ========================================================================
         GWO gwo = new GWO(wolfCount, dim, iterations, lo, hi, objective, seed);
+        // Optional: evaluate the pack in parallel (same result for any thread count)
+        // gwo.withSynchronousUpdate(ForkJoinPool.commonPool());
+        // Optional: stop early at a target fitness or after 100 iterations without improvement
+        // gwo.withTermination(new TerminationPolicy().targetFitness(1e-10).stagnation(100, 1e-12));
+        // Optional: keep only every 100th iteration in memory (stream the rest with addListener(csvStream(...)))
+        // gwo.withHistory(HistoryPolicy.everyN(100));
         Result r = gwo.optimize();
         
         // Export to CSV
@@ -0,0 +1,250 @@
+package optimize;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Allocation and throughput benchmark for the GWO main loop.
+ * Compares a copy of the original loop (jagged arrays, six rnd.nextDouble() calls per
+ * wolf per dimension, Arrays.copyOf on every leader change) against GWO's Pack.step(),
+ * and reports heap bytes allocated per iteration using the HotSpot per-thread
+ * allocation counter. The steady-state Pack.step() should report 0 bytes.
+ *
+ * The "parallel" mode measures synchronous-update throughput on an artificially
+ * expensive objective for increasing pool sizes, and checks that every pool size
+ * reaches the same best fitness.
+ *
+ * The "chunked" mode does the same for the dimension-chunked update on a small pack
+ * with a very high-dimensional separable objective.
+ *
+ * Usage: java optimize.GWOBenchmark [wolfCount] [dimensions] [iterations]
+ *        java optimize.GWOBenchmark parallel [wolfCount] [dimensions] [iterations] [costPerDimension]
+ *        java optimize.GWOBenchmark chunked [wolfCount] [dimensions] [iterations] [chunkSize]
+ */
+public class GWOBenchmark {
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("parallel")) {
+            parallelThroughput(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("chunked")) {
+            chunkedThroughput(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        int wolfCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int dims = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        double[] lower = new double[dims];
+        double[] upper = new double[dims];
+        Arrays.fill(lower, -5.12);
+        Arrays.fill(upper, 5.12);
+
+        System.out.println("=== GWO Allocation Benchmark (Sphere) ===");
+        System.out.println("  Wolf Count: " + wolfCount);
+        System.out.println("  Dimensions: " + dims);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-28s %-18s %-15s", "Variant", "Bytes/Iteration", "us/Iteration"));
+
+        // Warm up, then measure; each variant gets a fresh state with the same seed
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+            measureLegacy(wolfCount, dims, iterations, lower, upper, print);
+            measurePack(new GWO(wolfCount, dims, iterations, lower, upper, GWO.sphere(), 123L, false, 10),
+                    "Pack.step (asynchronous)", iterations, print);
+            measurePack(new GWO(wolfCount, dims, iterations, lower, upper, GWO.sphere(), 123L, false, 10)
+                    .withSynchronousUpdate(), "Pack.step (synchronous)", iterations, print);
+        }
+    }
+
+    private static void parallelThroughput(String[] args) {
+        int wolfCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int dims = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int cost = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+
+        double[] lower = new double[dims];
+        double[] upper = new double[dims];
+        Arrays.fill(lower, -5.12);
+        Arrays.fill(upper, 5.12);
+        GWO.FitnessFunction expensive = expensiveRastrigin(cost);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== GWO Parallel Synchronous Throughput ===");
+        System.out.println("  Wolf Count: " + wolfCount);
+        System.out.println("  Dimensions: " + dims);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("  Extra cos() calls per dimension: " + cost);
+        System.out.println("  Available Cores: " + cores);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-10s %-18s %-10s %-20s", "Threads", "Wolf Evals/sec", "Speedup", "Best Fitness"));
+
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(cores, threads * 2) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                GWO gwo = new GWO(wolfCount, dims, iterations, lower, upper, expensive, 7L, false, 10)
+                        .withSynchronousUpdate(pool);
+                gwo.optimize();  // warm-up
+                long t0 = System.nanoTime();
+                GWO.Result r = gwo.optimize();
+                double seconds = (System.nanoTime() - t0) / 1e9;
+                double rate = r.evaluations / seconds;
+                if (threads == 1) baseline = rate;
+                System.out.println(String.format("%-10d %-18.0f %-10.2f %-20.10f", threads, rate, rate / baseline, r.bestFitness));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void chunkedThroughput(String[] args) {
+        int wolfCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int dims = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int chunkSize = args.length > 3 ? Integer.parseInt(args[3]) : GWO.DEFAULT_CHUNK_SIZE;
+
+        double[] lower = new double[dims];
+        double[] upper = new double[dims];
+        Arrays.fill(lower, -5.12);
+        Arrays.fill(upper, 5.12);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== GWO Dimension-Chunked Throughput (Rastrigin) ===");
+        System.out.println("  Wolf Count: " + wolfCount);
+        System.out.println("  Dimensions: " + dims);
+        System.out.println("  Iterations: " + iterations);
+        System.out.println("  Chunk Size: " + chunkSize);
+        System.out.println("  Available Cores: " + cores);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-10s %-18s %-10s %-20s", "Threads", "ms/Iteration", "Speedup", "Best Fitness"));
+
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(cores, threads * 2) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                GWO gwo = new GWO(wolfCount, dims, iterations, lower, upper, GWO.rastrigin(), 7L, false, 10)
+                        .withDimensionChunks(pool, chunkSize);
+                gwo.optimize();  // warm-up
+                long t0 = System.nanoTime();
+                GWO.Result r = gwo.optimize();
+                double ms = (System.nanoTime() - t0) / 1e6 / iterations;
+                if (threads == 1) baseline = ms;
+                System.out.println(String.format("%-10d %-18.3f %-10.2f %-20.6f", threads, ms, baseline / ms, r.bestFitness));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Rastrigin with extra transcendental work per dimension to mimic a costly objective
+    private static GWO.FitnessFunction expensiveRastrigin(int cost) {
+        GWO.FitnessFunction base = GWO.rastrigin();
+        return x -> {
+            double noise = 0;
+            for (double v : x) {
+                for (int k = 0; k < cost; k++) noise += Math.cos(v + k);
+            }
+            // Multiplying by 0.0 keeps the extra work live without changing the landscape
+            return base.evaluate(x) + 0.0 * noise;
+        };
+    }
+
+    private static void measurePack(GWO gwo, String name, int iterations, boolean print) {
+        GWO.Pack pack = gwo.newPack();
+        long bytes0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int t = 0; t < iterations; t++) {
+            pack.step(2.0 - 2.0 * (t / (double) iterations));
+        }
+        long t1 = System.nanoTime();
+        long bytes1 = allocatedBytes();
+        if (print) report(name, bytes1 - bytes0, t1 - t0, iterations, pack.falpha);
+    }
+
+    private static void measureLegacy(int wolfCount, int dims, int iterations,
+                                      double[] lower, double[] upper, boolean print) {
+        Random rnd = new Random(123L);
+        GWO.FitnessFunction fitness = GWO.sphere();
+        double[][] X = new double[wolfCount][dims];
+        double[] fit = new double[wolfCount];
+        for (int i = 0; i < wolfCount; i++) {
+            for (int d = 0; d < dims; d++) X[i][d] = lower[d] + rnd.nextDouble() * (upper[d] - lower[d]);
+            fit[i] = fitness.evaluate(X[i]);
+        }
+        Leaders leaders = new Leaders();
+        for (int i = 0; i < wolfCount; i++) leaders.offer(X[i], fit[i]);
+
+        long bytes0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int t = 0; t < iterations; t++) {
+            double a = 2.0 - 2.0 * (t / (double) iterations);
+            for (int i = 0; i < wolfCount; i++) {
+                for (int d = 0; d < dims; d++) {
+                    double A1 = 2 * a * rnd.nextDouble() - a;
+                    double C1 = 2 * rnd.nextDouble();
+                    double A2 = 2 * a * rnd.nextDouble() - a;
+                    double C2 = 2 * rnd.nextDouble();
+                    double A3 = 2 * a * rnd.nextDouble() - a;
+                    double C3 = 2 * rnd.nextDouble();
+                    double X1 = leaders.alpha[d] - A1 * Math.abs(C1 * leaders.alpha[d] - X[i][d]);
+                    double X2 = leaders.beta[d] - A2 * Math.abs(C2 * leaders.beta[d] - X[i][d]);
+                    double X3 = leaders.delta[d] - A3 * Math.abs(C3 * leaders.delta[d] - X[i][d]);
+                    double newPos = (X1 + X2 + X3) / 3.0;
+                    if (newPos < lower[d]) newPos = lower[d];
+                    if (newPos > upper[d]) newPos = upper[d];
+                    X[i][d] = newPos;
+                }
+                fit[i] = fitness.evaluate(X[i]);
+                leaders.offer(X[i], fit[i]);
+            }
+        }
+        long t1 = System.nanoTime();
+        long bytes1 = allocatedBytes();
+        if (print) report("original loop", bytes1 - bytes0, t1 - t0, iterations, leaders.falpha);
+    }
+
+    // Leader tracking as in the original GWO.optimize(): a fresh copy per leader change
+    private static final class Leaders {
+        double[] alpha, beta, delta;
+        double falpha = Double.POSITIVE_INFINITY;
+        double fbeta = Double.POSITIVE_INFINITY;
+        double fdelta = Double.POSITIVE_INFINITY;
+
+        void offer(double[] x, double f) {
+            if (f < falpha) {
+                fdelta = fbeta;
+                delta = beta;
+                fbeta = falpha;
+                beta = alpha;
+                falpha = f;
+                alpha = Arrays.copyOf(x, x.length);
+            } else if (f < fbeta) {
+                fdelta = fbeta;
+                delta = beta;
+                fbeta = f;
+                beta = Arrays.copyOf(x, x.length);
+            } else if (f < fdelta) {
+                fdelta = f;
+                delta = Arrays.copyOf(x, x.length);
+            }
+        }
+    }
+
+    private static void report(String name, long bytes, long nanos, int iterations, double best) {
+        System.out.println(String.format("%-28s %-18.1f %-15.2f (best %.3e)",
+                name, bytes / (double) iterations, nanos / 1e3 / iterations, best));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
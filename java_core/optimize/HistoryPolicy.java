@@ -0,0 +1,49 @@
+package optimize;
+
+/**
+ * Decides which iterations of a PSO/GWO run are materialised as IterationLog records,
+ * either for Result.history or for an IterationListener. A log copies the full best
+ * position, so for long, high-dimensional runs sample sparsely or keep a summary only.
+ * The last iteration of a run is always recorded unless the policy is summaryOnly().
+ */
+public final class HistoryPolicy {
+    private final int every;
+    private final boolean improvementsOnly;
+
+    private HistoryPolicy(int every, boolean improvementsOnly) {
+        this.every = every;
+        this.improvementsOnly = improvementsOnly;
+    }
+
+    /** Every iteration (the default, same as before sampling existed). */
+    public static HistoryPolicy all() {
+        return new HistoryPolicy(1, false);
+    }
+
+    /** Every n-th iteration, plus the last one. */
+    public static HistoryPolicy everyN(int n) {
+        if (n <= 0) throw new IllegalArgumentException("sampling interval must be positive: " + n);
+        return new HistoryPolicy(n, false);
+    }
+
+    /** Only iterations in which the best fitness improved, plus the first and last. */
+    public static HistoryPolicy onImprovement() {
+        return new HistoryPolicy(1, true);
+    }
+
+    /** No per-iteration records; Result.history is null and only the summary fields are set. */
+    public static HistoryPolicy summaryOnly() {
+        return new HistoryPolicy(0, false);
+    }
+
+    boolean isSummaryOnly() {
+        return every == 0;
+    }
+
+    boolean records(int iteration, boolean improved, boolean last) {
+        if (every == 0) return false;
+        if (last) return true;
+        if (improvementsOnly) return improved || iteration == 1;
+        return iteration % every == 0;
+    }
+}
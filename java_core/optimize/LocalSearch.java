@@ -0,0 +1,211 @@
+package optimize;
+
+/**
+ * 2-opt and Or-opt improvement of a tour, used by ACO_TSP.withLocalSearch.
+ * Moves are searched only among each city's nearest neighbours and their gain is
+ * evaluated in O(1) from the edges they change. A city whose neighbourhood gave no
+ * improvement is skipped (its don't-look bit is set) until one of its tour edges
+ * changes. Or-opt moves a segment of 1 to 3 cities, possibly reversed, next to a
+ * neighbour; it is carried out as two or three 2-opt reversals.
+ *
+ * The tour is kept as an array plus each city's position; a reversal flips the
+ * shorter of the two sides. Both the gains and the reversals assume a symmetric
+ * instance. Not thread-safe: each ant has its own instance.
+ */
+final class LocalSearch {
+    private static final double EPS = 1e-9;
+    private static final int MAX_SEGMENT = 3;
+
+    private final TSPInstance instance;
+    private final int[][] neighbours;
+    private final int n;
+    private final int[] pos;
+    private final int[] queue;        // cities whose don't-look bit is off, FIFO
+    private final boolean[] queued;
+    private int head;
+    private int size;
+    private int[] tour;
+
+    LocalSearch(TSPInstance instance, int[][] neighbours) {
+        this.instance = instance;
+        this.neighbours = neighbours;
+        this.n = instance.size();
+        this.pos = new int[n];
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+    }
+
+    /** Improves tour in place until no move helps; returns the new length. */
+    double improve(int[] tour, double length) {
+        if (n < 5) return length;
+        this.tour = tour;
+        head = 0;
+        size = 0;
+        for (int i = 0; i < n; i++) {
+            pos[tour[i]] = i;
+            queued[tour[i]] = false;
+        }
+        for (int i = 0; i < n; i++) push(tour[i]);
+
+        while (size > 0) {
+            int a = queue[head];
+            head = head + 1 == n ? 0 : head + 1;
+            size--;
+            queued[a] = false;
+            double delta = twoOpt(a);
+            if (delta == 0.0) delta = orOpt(a);
+            if (delta != 0.0) {
+                length += delta;
+                push(a);
+            }
+        }
+        this.tour = null;
+        return length;
+    }
+
+    private void push(int c) {
+        if (queued[c]) return;
+        queued[c] = true;
+        int tail = head + size;
+        queue[tail >= n ? tail - n : tail] = c;
+        size++;
+    }
+
+    private double d(int a, int b) {
+        return instance.distance(a, b);
+    }
+
+    private int next(int c) {
+        int p = pos[c] + 1;
+        return tour[p == n ? 0 : p];
+    }
+
+    private int prev(int c) {
+        int p = pos[c] - 1;
+        return tour[p < 0 ? n - 1 : p];
+    }
+
+    // Replaces the tour edges (a, b) and (c, d), where b follows a and d follows c in the
+    // same direction, by (a, c) and (b, d)
+    private void flip(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(pos[b], pos[c]);
+        } else {
+            reverse(pos[c], pos[b]);
+        }
+    }
+
+    // Reverses tour positions i..j (cyclic); reversing the complement instead gives the
+    // same cycle, so the shorter side is flipped
+    private void reverse(int i, int j) {
+        int len = j - i;
+        if (len < 0) len += n;
+        len++;
+        if (2 * len > n) {
+            int t = i;
+            i = j + 1 == n ? 0 : j + 1;
+            j = t == 0 ? n - 1 : t - 1;
+            len = n - len;
+        }
+        for (int s = len / 2; s > 0; s--) {
+            int ci = tour[i];
+            int cj = tour[j];
+            tour[i] = cj;
+            pos[cj] = i;
+            tour[j] = ci;
+            pos[ci] = j;
+            i = i + 1 == n ? 0 : i + 1;
+            j = j == 0 ? n - 1 : j - 1;
+        }
+    }
+
+    // First improving 2-opt move that makes a adjacent to one of its neighbours
+    private double twoOpt(int a) {
+        for (int dir = 0; dir < 2; dir++) {
+            int b = dir == 0 ? next(a) : prev(a);
+            double dab = d(a, b);
+            for (int c : neighbours[a]) {
+                double dac = d(a, c);
+                if (dac >= dab - EPS) break;  // neighbours are sorted: no further gain possible
+                int e = dir == 0 ? next(c) : prev(c);
+                if (c == b || e == a) continue;
+                double delta = dac + d(b, e) - dab - d(c, e);
+                if (delta < -EPS) {
+                    if (dir == 0) {
+                        flip(a, b, c, e);
+                    } else {
+                        flip(b, a, e, c);
+                    }
+                    push(b);
+                    push(c);
+                    push(e);
+                    return delta;
+                }
+            }
+        }
+        return 0.0;
+    }
+
+    // First improving move of a segment of 1..3 cities that starts or ends at a
+    private double orOpt(int a) {
+        for (int len = 1; len <= MAX_SEGMENT && len + 3 <= n; len++) {
+            for (int side = 0; side < (len == 1 ? 1 : 2); side++) {
+                int s1 = a;
+                int s2 = a;
+                for (int k = 1; k < len; k++) {
+                    if (side == 0) {
+                        s2 = next(s2);
+                    } else {
+                        s1 = prev(s1);
+                    }
+                }
+                double delta = moveSegment(s1, s2, len);
+                if (delta != 0.0) return delta;
+            }
+        }
+        return 0.0;
+    }
+
+    private double moveSegment(int s1, int s2, int len) {
+        int p = prev(s1);
+        int nx = next(s2);
+        double removeGain = d(p, s1) + d(s2, nx) - d(p, nx);
+        if (removeGain <= EPS) return 0.0;
+        for (int end = 0; end < 2; end++) {
+            int s = end == 0 ? s1 : s2;
+            for (int c : neighbours[s]) {
+                if (d(s, c) >= removeGain - EPS) break;
+                if (inSegment(c, s1, len)) continue;
+                // Insert between c and either tour neighbour
+                for (int dir = 0; dir < 2; dir++) {
+                    int e = dir == 0 ? c : prev(c);
+                    int f = dir == 0 ? next(c) : c;
+                    if (e == p || inSegment(e, s1, len)) continue;
+                    double def = d(e, f);
+                    double keep = d(e, s1) + d(s2, f);
+                    double reversed = d(e, s2) + d(s1, f);
+                    double delta = Math.min(keep, reversed) - def - removeGain;
+                    if (delta < -EPS) {
+                        flip(p, s1, e, f);
+                        flip(p, e, nx, s2);
+                        if (keep <= reversed) flip(e, s2, s1, f);
+                        push(p);
+                        push(nx);
+                        push(s1);
+                        push(s2);
+                        push(e);
+                        push(f);
+                        return delta;
+                    }
+                }
+            }
+        }
+        return 0.0;
+    }
+
+    private boolean inSegment(int c, int s1, int len) {
+        int offset = pos[c] - pos[s1];
+        if (offset < 0) offset += n;
+        return offset < len;
+    }
+}
@@ -0,0 +1,94 @@
+package optimize;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory in 1 GB segments, so it may exceed the 2 GB limit of a
+ * single MappedByteBuffer. Values are big-endian and addressed by long byte offsets.
+ * Callers keep ints 4-byte and longs/doubles 8-byte aligned, so no value straddles
+ * two segments. Used by TSPInstance's binary matrices and ACO_TSP's checkpoints.
+ */
+final class MappedFile implements AutoCloseable {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;  // null once the file is only read
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedFile(FileChannel channel, MappedByteBuffer[] segments, long size) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /** Creates (or truncates) the file with the given size and maps it for writing. */
+    static MappedFile create(Path file, long bytes) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedFile(ch, map(ch, FileChannel.MapMode.READ_WRITE, bytes), bytes);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** Maps an existing file read-only; the mapping stays valid after the channel is closed. */
+    static MappedFile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = ch.size();
+            return new MappedFile(null, map(ch, FileChannel.MapMode.READ_ONLY, bytes), bytes);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel ch, FileChannel.MapMode mode, long bytes) throws IOException {
+        int count = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] result = new MappedByteBuffer[count];
+        for (int s = 0; s < count; s++) {
+            long start = (long) s << SEGMENT_SHIFT;
+            result[s] = ch.map(mode, start, Math.min(1L << SEGMENT_SHIFT, bytes - start));
+        }
+        return result;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    long getLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    double getDouble(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getDouble((int) (offset & SEGMENT_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putInt((int) (offset & SEGMENT_MASK), value);
+    }
+
+    void putLong(long offset, long value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & SEGMENT_MASK), value);
+    }
+
+    void putDouble(long offset, double value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putDouble((int) (offset & SEGMENT_MASK), value);
+    }
+
+    /** Flushes a writable mapping to disk. */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        for (MappedByteBuffer segment : segments) segment.force();
+        channel.close();
+    }
+}
@@ -3,27 +3,85 @@ package optimize;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 
 public class PSO {
+    /**
+     * Dimensions per chunk in withDimensionChunks(): 16 KB of each of x, v, pBest, r1 and
+     * r2, so a chunk's working set stays well inside a typical L2 cache.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 2048;
+
+    /**
+     * Social topology: which pBests a particle is attracted to. GLOBAL is the classic
+     * gBest swarm; the others use the best pBest of a local neighbourhood (lBest).
+     */
+    public enum Topology {
+        GLOBAL,
+        RING,
+        VON_NEUMANN,
+        RANDOM
+    }
+
     public interface FitnessFunction {
         double evaluate(double[] x);
+
+        /**
+         * Evaluates rows [from, to) of a row-major position block (row i starts at
+         * i * dims) and writes the fitness of row i to out[i]. The default copies each
+         * row and calls evaluate(); vectorised or native objectives can override it to
+         * amortise setup across the population.
+         */
+        default void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+            double[] row = new double[dims];
+            for (int i = from; i < to; i++) {
+                System.arraycopy(positions, i * dims, row, 0, dims);
+                out[i] = evaluate(row);
+            }
+        }
+
+        default void evaluateBatch(double[] flatPositions, int count, int dims, double[] out) {
+            evaluateBatch(flatPositions, 0, count, dims, out);
+        }
+    }
+
+    /**
+     * An objective that is a sum of per-dimension terms. partialSum(x, off, from, to)
+     * returns the sum of the terms for dimensions [from, to) of the row starting at
+     * x[off], so the partial sums of disjoint ranges add up to evaluate(). The
+     * dimension-chunked mode evaluates such objectives chunk by chunk in parallel.
+     */
+    public interface SeparableFunction extends FitnessFunction {
+        double partialSum(double[] x, int off, int from, int to);
     }
 
     public static class Result {
         public final double[] bestPosition;
         public final double bestFitness;
         public final List<IterationLog> history;
+        public final TerminationPolicy.StopReason stopReason;
+        public final long evaluations;
         
         public Result(double[] bestPosition, double bestFitness, List<IterationLog> history) {
+            this(bestPosition, bestFitness, history, TerminationPolicy.StopReason.MAX_ITERATIONS, 0);
+        }
+
+        public Result(double[] bestPosition, double bestFitness, List<IterationLog> history,
+                      TerminationPolicy.StopReason stopReason, long evaluations) {
             this.bestPosition = bestPosition;
             this.bestFitness = bestFitness;
             this.history = history;
+            this.stopReason = stopReason;
+            this.evaluations = evaluations;
         }
     }
 
@@ -46,6 +104,16 @@ public class PSO {
         }
     }
 
+    /**
+     * Receives IterationLog records while the run is in progress, e.g. to stream them to
+     * disk (see csvStream). onFinish is called once with the final result.
+     */
+    public interface IterationListener {
+        void onIteration(IterationLog log);
+
+        default void onFinish(Result result) {}
+    }
+
     private final int swarmSize;
     private final int dimensions;
     private final int iterations;
@@ -55,10 +123,22 @@ public class PSO {
     private final double[] lower;
     private final double[] upper;
     private final FitnessFunction fitness;
-    private final Random rnd;
+    private final long seed;
+    private final FastRandom rnd;
     private final boolean verbose;
     private final int logInterval;
 
+    // Synchronous-update mode (see withSynchronousUpdate)
+    private boolean synchronous;
+    private ForkJoinPool pool;
+    private TerminationPolicy termination = new TerminationPolicy();
+    private Topology topology = Topology.GLOBAL;
+    private int randomNeighbours = 3;
+    private int chunkSize;  // dimension-chunked mode when > 0
+    private HistoryPolicy history = HistoryPolicy.all();
+    private final List<IterationListener> listeners = new ArrayList<>();
+    private final List<HistoryPolicy> listenerPolicies = new ArrayList<>();
+
     public PSO(int swarmSize, int dimensions, int iterations,
                double inertiaW, double c1, double c2,
                double[] lower, double[] upper,
@@ -80,11 +160,118 @@ public class PSO {
         this.lower = Arrays.copyOf(lower, lower.length);
         this.upper = Arrays.copyOf(upper, upper.length);
         this.fitness = fitness;
-        this.rnd = new Random(seed);
+        this.seed = seed;
+        this.rnd = new FastRandom(seed);
         this.verbose = verbose;
         this.logInterval = logInterval;
     }
 
+    /**
+     * Switches to synchronous updates: every particle moves against the gBest of the
+     * previous iteration, the whole swarm is evaluated, and pBest/gBest are reduced
+     * once per iteration. Each particle draws from its own random stream, so for a
+     * given seed the result does not depend on how many threads the pool has.
+     * Pass null to run the synchronous update on the calling thread. The fitness
+     * function must be thread-safe when a pool is given.
+     */
+    public PSO withSynchronousUpdate(ForkJoinPool pool) {
+        this.synchronous = true;
+        this.chunkSize = 0;
+        this.pool = pool;
+        return this;
+    }
+
+    /** Dimension-chunked updates with chunks of DEFAULT_CHUNK_SIZE dimensions. */
+    public PSO withDimensionChunks(ForkJoinPool pool) {
+        return withDimensionChunks(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * For very high-dimensional problems with small swarms: particles still move one at a
+     * time as in the default update, but each particle's dimensions are split into chunks
+     * that are moved in parallel. Chunk c always covers the same dimensions and draws from
+     * its own random stream, so for a given seed the result does not depend on how many
+     * threads the pool has. SeparableFunction objectives (sphere, rastrigin) are evaluated
+     * as per-chunk partial sums; other objectives are evaluated on the calling thread.
+     * Replaces synchronous update mode.
+     */
+    public PSO withDimensionChunks(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        this.synchronous = false;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        return this;
+    }
+
+    /** Stops the run early according to the given policy (by default only the iteration count applies). */
+    public PSO withTermination(TerminationPolicy termination) {
+        this.termination = termination;
+        return this;
+    }
+
+    /**
+     * Uses a local-best topology: RING links each particle to its two index neighbours,
+     * VON_NEUMANN to its four neighbours on a grid wrapped within each row and column,
+     * and RANDOM to 3 random particles fixed for the run. The particle itself is always
+     * part of its neighbourhood.
+     */
+    public PSO withTopology(Topology topology) {
+        this.topology = topology;
+        return this;
+    }
+
+    /** RANDOM topology where every particle is informed by k random other particles. */
+    public PSO withTopology(Topology topology, int k) {
+        if (k <= 0) throw new IllegalArgumentException("neighbourhood size must be positive: " + k);
+        this.topology = topology;
+        this.randomNeighbours = k;
+        return this;
+    }
+
+    /**
+     * Chooses which iterations are kept in Result.history. With summaryOnly() the
+     * history is null; use a listener to stream iterations instead of holding them.
+     */
+    public PSO withHistory(HistoryPolicy history) {
+        this.history = history;
+        return this;
+    }
+
+    /** Notifies the listener of every iteration. */
+    public PSO addListener(IterationListener listener) {
+        return addListener(listener, HistoryPolicy.all());
+    }
+
+    /** Notifies the listener of the iterations selected by the policy. */
+    public PSO addListener(IterationListener listener, HistoryPolicy policy) {
+        listeners.add(listener);
+        listenerPolicies.add(policy);
+        return this;
+    }
+
+    /**
+     * Listener that writes each iteration to a CSV file (same format as exportToCSV)
+     * as soon as it completes; the file is closed when the run finishes.
+     */
+    public IterationListener csvStream(String filename) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(filename));
+        writeCsvHeader(writer);
+        return new IterationListener() {
+            @Override
+            public void onIteration(IterationLog log) {
+                writeCsvRow(writer, log);
+            }
+
+            @Override
+            public void onFinish(Result result) {
+                writer.close();
+                if (writer.checkError()) {
+                    throw new UncheckedIOException(new IOException("Error writing CSV: " + filename));
+                }
+            }
+        };
+    }
+
     public Result optimize() {
         if (verbose) {
             System.out.println("=== Particle Swarm Optimization (PSO) ===");
@@ -96,30 +283,25 @@ public class PSO {
             System.out.println("  Cognitive Coefficient (c1): " + c1);
             System.out.println("  Social Coefficient (c2): " + c2);
             System.out.println("  Bounds: [" + lower[0] + ", " + upper[0] + "]");
-            System.out.println("----------------------------------------");
-        }
-
-        double[][] x = new double[swarmSize][dimensions];
-        double[][] v = new double[swarmSize][dimensions];
-        double[][] pbest = new double[swarmSize][dimensions];
-        double[] pbestFit = new double[swarmSize];
-        double[] currentFit = new double[swarmSize];
-
-        // Initialize particles
-        for (int i = 0; i < swarmSize; i++) {
-            for (int d = 0; d < dimensions; d++) {
-                x[i][d] = lower[d] + rnd.nextDouble() * (upper[d] - lower[d]);
-                v[i][d] = 0.1 * (lower[d] + rnd.nextDouble() * (upper[d] - lower[d]));
-                pbest[i][d] = x[i][d];
+            if (topology != Topology.GLOBAL) {
+                System.out.println("  Topology: " + topology);
+            }
+            if (synchronous) {
+                System.out.println("  Update: synchronous (" + (pool != null ? pool.getParallelism() + " threads" : "caller thread") + ")");
+            }
+            if (chunkSize > 0) {
+                System.out.println("  Update: dimension chunks of " + chunkSize + " (" + (pool != null ? pool.getParallelism() + " threads" : "caller thread") + ")");
             }
-            pbestFit[i] = fitness.evaluate(x[i]);
-            currentFit[i] = pbestFit[i];
+            System.out.println("----------------------------------------");
         }
 
-        double[] gbest = Arrays.copyOf(pbest[argMin(pbestFit)], dimensions);
-        double gbestFit = fitness.evaluate(gbest);
+        long evaluations = swarmSize + 1L;
+        TerminationPolicy.Monitor monitor = termination.start(evaluations);
+        Swarm swarm = newSwarm();
+        TerminationPolicy.StopReason stopReason = monitor.check(0, swarm.gbestFit, evaluations, swarmSize, swarm::diameter);
 
-        List<IterationLog> history = new ArrayList<>();
+        List<IterationLog> retained = history.isSummaryOnly() ? null : new ArrayList<>();
+        double previousBest = swarm.gbestFit;
 
         if (verbose) {
             System.out.println("\nStarting optimization...\n");
@@ -129,48 +311,28 @@ public class PSO {
         }
 
         // Main optimization loop
-        for (int t = 0; t < iterations; t++) {
-            for (int i = 0; i < swarmSize; i++) {
-                for (int d = 0; d < dimensions; d++) {
-                    // Generate random coefficients r1, r2 for each dimension
-                    double r1 = rnd.nextDouble();
-                    double r2 = rnd.nextDouble();
-                    
-                    // Velocity update: v = w*v + c1*r1*(pBest - x) + c2*r2*(gBest - x)
-                    v[i][d] = inertiaW * v[i][d]
-                            + c1 * r1 * (pbest[i][d] - x[i][d])
-                            + c2 * r2 * (gbest[d] - x[i][d]);
-                    
-                    // Position update: x = x + v
-                    x[i][d] += v[i][d];
-                    
-                    // Boundary constraints
-                    if (x[i][d] < lower[d]) { 
-                        x[i][d] = lower[d]; 
-                        v[i][d] = 0; 
-                    }
-                    if (x[i][d] > upper[d]) { 
-                        x[i][d] = upper[d]; 
-                        v[i][d] = 0; 
-                    }
-                }
-                
-                // Evaluate fitness
-                double fit = fitness.evaluate(x[i]);
-                currentFit[i] = fit;
-                
-                // Update personal best
-                if (fit < pbestFit[i]) {
-                    pbestFit[i] = fit;
-                    System.arraycopy(x[i], 0, pbest[i], 0, dimensions);
-                    
-                    // Update global best
-                    if (fit < gbestFit) {
-                        gbestFit = fit;
-                        System.arraycopy(x[i], 0, gbest, 0, dimensions);
-                    }
-                }
+        for (int t = 0; t < iterations && stopReason == null; t++) {
+            swarm.step();
+            evaluations += swarmSize;
+
+            double[] currentFit = swarm.currentFit;
+            double[] gbest = swarm.gbest;
+            double gbestFit = swarm.gbestFit;
+            boolean improved = gbestFit < previousBest;
+            previousBest = gbestFit;
+
+            // Check termination
+            stopReason = monitor.check(t + 1, gbestFit, evaluations, swarmSize, swarm::diameter);
+
+            // Only build a log (and copy gBest) for iterations somebody records or prints
+            boolean last = t == iterations - 1 || stopReason != null;
+            boolean retain = retained != null && history.records(t + 1, improved, last);
+            boolean notify = false;
+            for (HistoryPolicy policy : listenerPolicies) {
+                notify |= policy.records(t + 1, improved, last);
             }
+            boolean print = verbose && ((t + 1) % logInterval == 0 || t == 0 || last);
+            if (!retain && !notify && !print) continue;
 
             // Calculate statistics
             double avgFit = Arrays.stream(currentFit).average().orElse(0.0);
@@ -178,11 +340,16 @@ public class PSO {
             double maxFit = Arrays.stream(currentFit).max().orElse(0.0);
 
             // Log iteration
-            IterationLog log = new IterationLog(t + 1, gbestFit, gbest, avgFit, minFit, maxFit);
-            history.add(log);
+            if (retain || notify) {
+                IterationLog log = new IterationLog(t + 1, gbestFit, gbest, avgFit, minFit, maxFit);
+                if (retain) retained.add(log);
+                for (int l = 0; l < listeners.size(); l++) {
+                    if (listenerPolicies.get(l).records(t + 1, improved, last)) listeners.get(l).onIteration(log);
+                }
+            }
 
             // Print progress
-            if (verbose && ((t + 1) % logInterval == 0 || t == 0 || t == iterations - 1)) {
+            if (print) {
                 String posStr = Arrays.toString(gbest);
                 if (posStr.length() > 28) posStr = posStr.substring(0, 25) + "...";
                 System.out.println(String.format("%-10d %-15.6f %-30s %-15.6f %-15.6f %-15.6f",
@@ -190,14 +357,462 @@ public class PSO {
             }
         }
 
+        if (stopReason == null) stopReason = TerminationPolicy.StopReason.MAX_ITERATIONS;
+
         if (verbose) {
             System.out.println("--------------------------------------------------------------------------------");
             System.out.println("\nOptimization Complete!");
-            System.out.println("Final gBest Fitness: " + gbestFit);
-            System.out.println("Final gBest Position: " + Arrays.toString(gbest));
+            System.out.println("Stop Reason: " + stopReason + " after " + evaluations + " evaluations");
+            System.out.println("Final gBest Fitness: " + swarm.gbestFit);
+            System.out.println("Final gBest Position: " + Arrays.toString(swarm.gbest));
+        }
+
+        Result result = new Result(swarm.gbest, swarm.gbestFit, retained, stopReason, evaluations);
+        for (IterationListener listener : listeners) listener.onFinish(result);
+        return result;
+    }
+
+    /** Creates and initializes the swarm state; used by optimize() and by drivers such as PSOIslands. */
+    Swarm newSwarm() {
+        Swarm swarm = new Swarm();
+        swarm.initialize();
+        return swarm;
+    }
+
+    int getSwarmSize() {
+        return swarmSize;
+    }
+
+    int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Swarm state for one optimize() run. Positions, velocities and personal bests are
+     * stored row-major in flat arrays: particle i occupies [i * dimensions, (i + 1) * dimensions).
+     * The asynchronous step reproduces the classic loop (one seeded stream, gBest updated after
+     * every particle); the synchronous step moves and evaluates all particles against a
+     * fixed gBest and reduces afterwards.
+     *
+     * With a local topology, lbest[i] is the index of the best pBest in particle i's
+     * neighbourhood and the particle is guided by that pBest row. pBests only ever improve,
+     * so when particle j improves only the neighbourhoods containing j (memberOf[j]) can
+     * change, and each is fixed with one comparison instead of rescanning it.
+     */
+    final class Swarm {
+        final double[] x;
+        final double[] v;
+        final double[] pbest;
+        final double[] pbestFit = new double[swarmSize];
+        final double[] currentFit = new double[swarmSize];
+        final SplittableRandom[] streams;
+        final double[] gbest = new double[dimensions];
+        double gbestFit;
+
+        // Local-best bookkeeping; null for the GLOBAL topology
+        final int[][] neighbours;
+        final int[][] memberOf;
+        final int[] lbest;
+        private final boolean[] improved = new boolean[swarmSize];
+
+        // Scratch buffers for the asynchronous step
+        private final double[] coef = new double[2 * dimensions];
+        private final double[] r1 = new double[dimensions];
+        private final double[] r2 = new double[dimensions];
+        private final double[] row = new double[dimensions];
+
+        // Dimension-chunked mode: one stream and one partial sum per chunk; null otherwise
+        final SplittableRandom[] chunkStreams;
+        private final double[] partial;
+        private final SeparableFunction separable;
+        private final Parallel.BlockBody initChunk = this::initChunk;
+        private final Parallel.BlockBody moveChunk = this::moveChunk;
+        private int chunkParticle;
+
+        Swarm() {
+            long cells = (long) swarmSize * dimensions;
+            if (cells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Swarm too large for flat storage: " + swarmSize + " x " + dimensions);
+            }
+            x = new double[(int) cells];
+            v = new double[(int) cells];
+            pbest = new double[(int) cells];
+            if (synchronous) {
+                // One stream per particle, split in index order so it is independent of threads
+                SplittableRandom root = new SplittableRandom(seed);
+                streams = new SplittableRandom[swarmSize];
+                for (int i = 0; i < swarmSize; i++) streams[i] = root.split();
+            } else {
+                streams = null;
+            }
+            if (chunkSize > 0) {
+                // One stream per chunk, split in chunk order
+                SplittableRandom root = new SplittableRandom(seed);
+                chunkStreams = new SplittableRandom[Parallel.chunkCount(dimensions, chunkSize)];
+                for (int c = 0; c < chunkStreams.length; c++) chunkStreams[c] = root.split();
+                partial = new double[chunkStreams.length];
+                separable = fitness instanceof SeparableFunction ? (SeparableFunction) fitness : null;
+            } else {
+                chunkStreams = null;
+                partial = null;
+                separable = null;
+            }
+            if (topology == Topology.GLOBAL) {
+                neighbours = null;
+                memberOf = null;
+                lbest = null;
+            } else {
+                neighbours = buildNeighbourhoods();
+                memberOf = invert(neighbours);
+                lbest = new int[swarmSize];
+            }
+        }
+
+        private int[][] buildNeighbourhoods() {
+            int n = swarmSize;
+            int cols = Math.max(1, (int) Math.round(Math.sqrt(n)));
+            SplittableRandom links = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            int[][] result = new int[n][];
+            for (int i = 0; i < n; i++) {
+                LinkedHashSet<Integer> hood = new LinkedHashSet<>();
+                hood.add(i);
+                switch (topology) {
+                    case RING:
+                        hood.add((i + n - 1) % n);
+                        hood.add((i + 1) % n);
+                        break;
+                    case VON_NEUMANN:
+                        // Grid with rows of cols particles (the last row may be shorter),
+                        // wrapped within each row and each column: left, right, up, down
+                        int row = i / cols;
+                        int col = i % cols;
+                        int rowStart = row * cols;
+                        int rowLength = Math.min(cols, n - rowStart);
+                        int lastInColumn = col + (n - 1 - col) / cols * cols;
+                        hood.add(rowStart + (col + rowLength - 1) % rowLength);
+                        hood.add(rowStart + (col + 1) % rowLength);
+                        hood.add(i >= cols ? i - cols : lastInColumn);
+                        hood.add(i + cols < n ? i + cols : col);
+                        break;
+                    case RANDOM:
+                        int k = Math.min(randomNeighbours, n - 1);
+                        while (hood.size() < k + 1) hood.add(links.nextInt(n));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown topology: " + topology);
+                }
+                result[i] = hood.stream().mapToInt(Integer::intValue).toArray();
+            }
+            return result;
+        }
+
+        private int[][] invert(int[][] hoods) {
+            int[] counts = new int[swarmSize];
+            for (int[] hood : hoods) for (int j : hood) counts[j]++;
+            int[][] result = new int[swarmSize][];
+            for (int j = 0; j < swarmSize; j++) result[j] = new int[counts[j]];
+            int[] fill = new int[swarmSize];
+            for (int i = 0; i < swarmSize; i++) {
+                for (int j : hoods[i]) result[j][fill[j]++] = i;
+            }
+            return result;
+        }
+
+        void initialize() {
+            if (synchronous) {
+                Parallel.forRange(pool, swarmSize, (from, to) -> {
+                    for (int i = from; i < to; i++) initParticle(i, streams[i]);
+                });
+            } else if (chunkStreams != null) {
+                for (int i = 0; i < swarmSize; i++) {
+                    chunkParticle = i;
+                    Parallel.forChunks(pool, dimensions, chunkSize, initChunk);
+                    System.arraycopy(x, i * dimensions, pbest, i * dimensions, dimensions);
+                }
+            } else {
+                for (int i = 0; i < swarmSize; i++) initParticle(i, rnd);
+            }
+
+            // Evaluate the initial swarm in batch, on the pool only in synchronous mode:
+            // with dimension chunks the fitness function need not be thread-safe
+            Parallel.forRange(synchronous ? pool : null, swarmSize,
+                (from, to) -> fitness.evaluateBatch(x, from, to, dimensions, currentFit));
+            System.arraycopy(currentFit, 0, pbestFit, 0, swarmSize);
+
+            System.arraycopy(pbest, argMin(pbestFit) * dimensions, gbest, 0, dimensions);
+            gbestFit = fitness.evaluate(gbest);
+
+            if (lbest != null) {
+                for (int i = 0; i < swarmSize; i++) {
+                    int best = i;
+                    for (int j : neighbours[i]) {
+                        if (pbestFit[j] < pbestFit[best]) best = j;
+                    }
+                    lbest[i] = best;
+                }
+            }
+        }
+
+        private void initParticle(int i, RandomGenerator g) {
+            initRange(i, g, 0, dimensions);
+            System.arraycopy(x, i * dimensions, pbest, i * dimensions, dimensions);
+        }
+
+        private void initChunk(int chunk, int from, int to) {
+            initRange(chunkParticle, chunkStreams[chunk], from, to);
+        }
+
+        private void initRange(int i, RandomGenerator g, int from, int to) {
+            int off = i * dimensions;
+            for (int d = from; d < to; d++) {
+                x[off + d] = lower[d] + g.nextDouble() * (upper[d] - lower[d]);
+                v[off + d] = 0.1 * (lower[d] + g.nextDouble() * (upper[d] - lower[d]));
+            }
+        }
+
+        void step() {
+            if (synchronous) {
+                stepSynchronous();
+            } else if (chunkStreams != null) {
+                stepChunked();
+            } else {
+                stepAsynchronous();
+            }
+        }
+
+        void stepAsynchronous() {
+            for (int i = 0; i < swarmSize; i++) {
+                drawCoefficients(rnd, coef, r1, r2);
+                move(i, r1, r2);
+
+                // Evaluate fitness
+                double fit = evaluate(i, row);
+                currentFit[i] = fit;
+                updateBests(i, fit);
+            }
+        }
+
+        void stepChunked() {
+            for (int i = 0; i < swarmSize; i++) {
+                // Move (and for separable objectives, evaluate) the particle chunk by chunk
+                chunkParticle = i;
+                Parallel.forChunks(pool, dimensions, chunkSize, moveChunk);
+
+                double fit;
+                if (separable != null) {
+                    fit = 0.0;
+                    for (double p : partial) fit += p;
+                } else {
+                    fit = evaluate(i, row);
+                }
+                currentFit[i] = fit;
+                updateBests(i, fit);
+            }
+        }
+
+        private void moveChunk(int chunk, int from, int to) {
+            int i = chunkParticle;
+            drawCoefficients(chunkStreams[chunk], r1, r2, from, to);
+            move(i, r1, r2, from, to);
+            if (separable != null) partial[chunk] = separable.partialSum(x, i * dimensions, from, to);
+        }
+
+        private void updateBests(int i, double fit) {
+            int off = i * dimensions;
+
+            // Update personal best
+            if (fit < pbestFit[i]) {
+                pbestFit[i] = fit;
+                System.arraycopy(x, off, pbest, off, dimensions);
+                pbestImproved(i);
+
+                // Update global best
+                if (fit < gbestFit) {
+                    gbestFit = fit;
+                    System.arraycopy(x, off, gbest, 0, dimensions);
+                }
+            }
+        }
+
+        void stepSynchronous() {
+            // Move a block of particles and evaluate it with one batch call. pBests (and so
+            // gBest and every lBest) are read-only in this phase. Without a pool the block is
+            // the whole swarm.
+            Parallel.forRange(pool, swarmSize, (from, to) -> {
+                double[] br1 = new double[dimensions];
+                double[] br2 = new double[dimensions];
+                for (int i = from; i < to; i++) {
+                    drawCoefficients(streams[i], br1, br2);
+                    move(i, br1, br2);
+                }
+                fitness.evaluateBatch(x, from, to, dimensions, currentFit);
+            });
+
+            // Update pBests
+            Parallel.forRange(pool, swarmSize, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    improved[i] = currentFit[i] < pbestFit[i];
+                    if (improved[i]) {
+                        pbestFit[i] = currentFit[i];
+                        System.arraycopy(x, i * dimensions, pbest, i * dimensions, dimensions);
+                    }
+                }
+            });
+
+            // Reduce lBests and gBest once, in index order
+            if (lbest != null) {
+                for (int i = 0; i < swarmSize; i++) {
+                    if (improved[i]) pbestImproved(i);
+                }
+            }
+            int best = argMin(pbestFit);
+            if (pbestFit[best] < gbestFit) {
+                gbestFit = pbestFit[best];
+                System.arraycopy(pbest, best * dimensions, gbest, 0, dimensions);
+            }
+        }
+
+        private void move(int i, double[] r1, double[] r2) {
+            move(i, r1, r2, 0, dimensions);
+        }
+
+        private void move(int i, double[] r1, double[] r2, int from, int to) {
+            if (lbest == null) {
+                updateParticle(x, v, pbest, i * dimensions, gbest, 0, r1, r2, from, to, inertiaW, c1, c2, lower, upper);
+            } else {
+                updateParticle(x, v, pbest, i * dimensions, pbest, lbest[i] * dimensions, r1, r2, from, to, inertiaW, c1, c2, lower, upper);
+            }
+        }
+
+        // Particle j's pBest improved: only neighbourhoods that contain j can have a new best
+        private void pbestImproved(int j) {
+            if (lbest == null) return;
+            for (int i : memberOf[j]) {
+                if (pbestFit[j] < pbestFit[lbest[i]]) lbest[i] = j;
+            }
+        }
+
+        /** Indices of the k particles with the best pBest fitness, best first. */
+        int[] bestParticles(int k) {
+            k = Math.min(k, swarmSize);
+            int[] chosen = new int[k];
+            boolean[] taken = new boolean[swarmSize];
+            for (int r = 0; r < k; r++) {
+                int best = -1;
+                for (int i = 0; i < swarmSize; i++) {
+                    if (!taken[i] && (best < 0 || pbestFit[i] < pbestFit[best])) best = i;
+                }
+                taken[best] = true;
+                chosen[r] = best;
+            }
+            return chosen;
+        }
+
+        double[] pbestPosition(int i) {
+            return Arrays.copyOfRange(pbest, i * dimensions, (i + 1) * dimensions);
+        }
+
+        double pbestFitness(int i) {
+            return pbestFit[i];
+        }
+
+        /**
+         * Replaces the particle with the worst pBest by an immigrant: position and pBest are
+         * set to the given point, velocity is reset, and gBest is updated if it improves.
+         */
+        void immigrate(double[] position, double fit) {
+            int worst = 0;
+            for (int i = 1; i < swarmSize; i++) {
+                if (pbestFit[i] > pbestFit[worst]) worst = i;
+            }
+            if (fit >= pbestFit[worst]) return;
+            int off = worst * dimensions;
+            System.arraycopy(position, 0, x, off, dimensions);
+            System.arraycopy(position, 0, pbest, off, dimensions);
+            Arrays.fill(v, off, off + dimensions, 0.0);
+            pbestFit[worst] = fit;
+            currentFit[worst] = fit;
+            pbestImproved(worst);
+            if (fit < gbestFit) {
+                gbestFit = fit;
+                System.arraycopy(position, 0, gbest, 0, dimensions);
+            }
+        }
+
+        double diameter() {
+            return TerminationPolicy.boundingDiameter(x, swarmSize, dimensions);
+        }
+
+        private double evaluate(int i, double[] buf) {
+            System.arraycopy(x, i * dimensions, buf, 0, dimensions);
+            return fitness.evaluate(buf);
+        }
+    }
+
+    /**
+     * Draws the per-dimension coefficients r1, r2 for one particle, interleaved in the
+     * same order as the original per-dimension loop so seeded runs are unchanged.
+     */
+    static void drawCoefficients(RandomGenerator g, double[] r1, double[] r2) {
+        drawCoefficients(g, r1, r2, 0, r1.length);
+    }
+
+    static void drawCoefficients(RandomGenerator g, double[] r1, double[] r2, int from, int to) {
+        for (int d = from; d < to; d++) {
+            r1[d] = g.nextDouble();
+            r2[d] = g.nextDouble();
         }
+    }
+
+    /**
+     * Same values as drawCoefficients(g, r1, r2), but drawn in one FastRandom.fill pass
+     * into scratch (at least 2 * r1.length long) and then split into r1 and r2.
+     */
+    static void drawCoefficients(FastRandom g, double[] scratch, double[] r1, double[] r2) {
+        int dims = r1.length;
+        g.fill(scratch, 0, 2 * dims);
+        for (int d = 0; d < dims; d++) {
+            r1[d] = scratch[2 * d];
+            r2[d] = scratch[2 * d + 1];
+        }
+    }
 
-        return new Result(gbest, gbestFit, history);
+    /**
+     * Velocity/position/clamp kernel for the particle stored at [off, off + dims) of the
+     * flat arrays, attracted to guide[guideOff, guideOff + dims) (gBest or an lBest row).
+     * With the random coefficients drawn up front the body is straight-line arithmetic
+     * over contiguous arrays (min/max clamp, select for the velocity reset), which C2's
+     * superword pass can turn into SIMD code.
+     */
+    static void updateParticle(double[] x, double[] v, double[] pbest, int off,
+                               double[] guide, int guideOff, double[] r1, double[] r2, int dims,
+                               double w, double c1, double c2,
+                               double[] lower, double[] upper) {
+        updateParticle(x, v, pbest, off, guide, guideOff, r1, r2, 0, dims, w, c1, c2, lower, upper);
+    }
+
+    // Same update restricted to dimensions [from, to)
+    static void updateParticle(double[] x, double[] v, double[] pbest, int off,
+                               double[] guide, int guideOff, double[] r1, double[] r2, int from, int to,
+                               double w, double c1, double c2,
+                               double[] lower, double[] upper) {
+        for (int d = from; d < to; d++) {
+            double xd = x[off + d];
+
+            // Velocity update: v = w*v + c1*r1*(pBest - x) + c2*r2*(gBest - x)
+            double vd = w * v[off + d]
+                    + c1 * r1[d] * (pbest[off + d] - xd)
+                    + c2 * r2[d] * (guide[guideOff + d] - xd);
+
+            // Position update: x = x + v
+            double xn = xd + vd;
+
+            // Boundary constraints: clamp and stop the particle on the wall
+            double lo = lower[d];
+            double hi = upper[d];
+            x[off + d] = Math.min(Math.max(xn, lo), hi);
+            v[off + d] = (xn < lo || xn > hi) ? 0.0 : vd;
+        }
     }
 
     private int argMin(double[] arr) {
@@ -209,104 +824,161 @@ public class PSO {
     }
 
     public void exportToCSV(Result result, String filename) throws IOException {
+        if (result.history == null) {
+            throw new IllegalStateException("No history was retained; use csvStream to write iterations during the run");
+        }
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            // Write header
-            writer.print("iteration,gbest_fitness");
-            for (int d = 0; d < dimensions; d++) {
-                writer.print(",gbest_dim" + d);
-            }
-            writer.println(",avg_fitness,min_fitness,max_fitness");
-
-            // Write data
+            writeCsvHeader(writer);
             for (IterationLog log : result.history) {
-                writer.print(log.iteration + "," + log.gbestFitness);
-                for (int d = 0; d < dimensions; d++) {
-                    writer.print("," + log.gbestPosition[d]);
-                }
-                writer.println("," + log.avgFitness + "," + log.minFitness + "," + log.maxFitness);
+                writeCsvRow(writer, log);
             }
         }
     }
 
+    private void writeCsvHeader(PrintWriter writer) {
+        writer.print("iteration,gbest_fitness");
+        for (int d = 0; d < dimensions; d++) {
+            writer.print(",gbest_dim" + d);
+        }
+        writer.println(",avg_fitness,min_fitness,max_fitness");
+    }
+
+    private void writeCsvRow(PrintWriter writer, IterationLog log) {
+        writer.print(log.iteration + "," + log.gbestFitness);
+        for (int d = 0; d < dimensions; d++) {
+            writer.print("," + log.gbestPosition[d]);
+        }
+        writer.println("," + log.avgFitness + "," + log.minFitness + "," + log.maxFitness);
+    }
+
     // ============================================================================
     // BENCHMARK FUNCTIONS - Change the function here to test different objectives
     // ============================================================================
     
-    public static FitnessFunction sphere() {
+    /**
+     * A benchmark objective written against x[off, off + n), so the same code serves
+     * evaluate() on a single row and evaluateBatch() directly on flat swarm storage.
+     */
+    interface RowFunction {
+        double apply(double[] x, int off, int n);
+    }
+
+    static FitnessFunction batchNative(RowFunction f) {
+        return new FitnessFunction() {
+            @Override
+            public double evaluate(double[] x) {
+                return f.apply(x, 0, x.length);
+            }
+
+            @Override
+            public void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+                for (int i = from; i < to; i++) {
+                    out[i] = f.apply(positions, i * dims, dims);
+                }
+            }
+        };
+    }
+
+    // For a RowFunction whose value over [off, off + n) is the sum of its values over any
+    // split of that range into pieces, e.g. a plain sum of per-coordinate terms
+    static SeparableFunction separable(RowFunction f) {
+        return new SeparableFunction() {
+            @Override
+            public double evaluate(double[] x) {
+                return f.apply(x, 0, x.length);
+            }
+
+            @Override
+            public void evaluateBatch(double[] positions, int from, int to, int dims, double[] out) {
+                for (int i = from; i < to; i++) {
+                    out[i] = f.apply(positions, i * dims, dims);
+                }
+            }
+
+            @Override
+            public double partialSum(double[] x, int off, int from, int to) {
+                return f.apply(x, off + from, to - from);
+            }
+        };
+    }
+
+    public static SeparableFunction sphere() {
         // Sphere function: f(x) = sum(x_i^2)
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.12, 5.12]
-        return (x) -> {
+        return separable((x, off, n) -> {
             double sum = 0;
-            for (double v : x) sum += v * v;
+            for (int i = off; i < off + n; i++) sum += x[i] * x[i];
             return sum;
-        };
+        });
     }
     
-    public static FitnessFunction rastrigin() {
+    public static SeparableFunction rastrigin() {
         // Rastrigin function: f(x) = 10*n + sum(x_i^2 - 10*cos(2*pi*x_i))
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.12, 5.12]
-        return (x) -> {
+        return separable((x, off, n) -> {
             double A = 10;
-            double sum = A * x.length;
-            for (double v : x) {
-                sum += v * v - A * Math.cos(2 * Math.PI * v);
+            double sum = A * n;
+            for (int i = off; i < off + n; i++) {
+                sum += x[i] * x[i] - A * Math.cos(2 * Math.PI * x[i]);
             }
             return sum;
-        };
+        });
     }
     
     public static FitnessFunction rosenbrock() {
         // Rosenbrock function: f(x) = sum(100*(x_{i+1} - x_i^2)^2 + (1 - x_i)^2)
         // Global minimum: f(1,1,...,1) = 0
         // Bounds: [-2.0, 2.0]
-        return (x) -> {
+        return batchNative((x, off, n) -> {
             double sum = 0;
-            for (int i = 0; i < x.length - 1; i++) {
-                sum += 100 * Math.pow(x[i + 1] - x[i] * x[i], 2) + Math.pow(1 - x[i], 2);
+            for (int i = off; i < off + n - 1; i++) {
+                double a = x[i + 1] - x[i] * x[i];
+                double b = 1 - x[i];
+                sum += 100 * (a * a) + b * b;
             }
             return sum;
-        };
+        });
     }
     
     public static FitnessFunction ackley() {
         // Ackley function: f(x) = -20*exp(-0.2*sqrt(mean(x^2))) - exp(mean(cos(2*pi*x))) + 20 + e
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-5.0, 5.0]
-        return (x) -> {
+        return batchNative((x, off, n) -> {
             double a = 20;
             double b = 0.2;
             double c = 2 * Math.PI;
             
             double sumSq = 0;
             double sumCos = 0;
-            for (double v : x) {
-                sumSq += v * v;
-                sumCos += Math.cos(c * v);
+            for (int i = off; i < off + n; i++) {
+                sumSq += x[i] * x[i];
+                sumCos += Math.cos(c * x[i]);
             }
             
-            double n = x.length;
             double term1 = -a * Math.exp(-b * Math.sqrt(sumSq / n));
             double term2 = -Math.exp(sumCos / n);
             
             return term1 + term2 + a + Math.E;
-        };
+        });
     }
     
     public static FitnessFunction griewank() {
         // Griewank function: f(x) = 1 + sum(x_i^2/4000) - product(cos(x_i/sqrt(i)))
         // Global minimum: f(0,0,...,0) = 0
         // Bounds: [-600, 600]
-        return (x) -> {
+        return batchNative((x, off, n) -> {
             double sum = 0;
             double product = 1;
-            for (int i = 0; i < x.length; i++) {
-                sum += x[i] * x[i] / 4000.0;
-                product *= Math.cos(x[i] / Math.sqrt(i + 1));
+            for (int i = 0; i < n; i++) {
+                double xi = x[off + i];
+                sum += xi * xi / 4000.0;
+                product *= Math.cos(xi / Math.sqrt(i + 1));
             }
             return 1 + sum - product;
-        };
+        });
     }
 
     public static void main(String[] args) {
@@ -345,6 +1017,12 @@ public class PSO {
         // RUN OPTIMIZATION
         // ========================================================================
         PSO pso = new PSO(swarmSize, dim, iterations, inertiaW, c1, c2, lo, hi, objective, seed);
+        // Optional: evaluate the swarm in parallel (same result for any thread count)
+        // pso.withSynchronousUpdate(ForkJoinPool.commonPool());
+        // Optional: stop early at a target fitness or after 100 iterations without improvement
+        // pso.withTermination(new TerminationPolicy().targetFitness(1e-10).stagnation(100, 1e-12));
+        // Optional: keep only every 100th iteration in memory (stream the rest with addListener(csvStream(...)))
+        // pso.withHistory(HistoryPolicy.everyN(100));
         Result r = pso.optimize();
         
         // Export to CSV
@@ -0,0 +1,215 @@
+package optimize;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Micro-benchmark for the PSO velocity/position/clamp update.
+ * Compares the original jagged-array loop (one rnd.nextDouble() pair per dimension,
+ * branchy clamp) against the flat row-major storage with PSO.updateParticle, drawing
+ * the coefficients from Random, from FastRandom.fill as PSO.optimize() does, or from
+ * SplittableRandom.
+ * Fitness evaluation is excluded so only the update cost is measured.
+ *
+ * The "topology" mode instead compares how many evaluations each social topology
+ * needs to reach a target fitness.
+ *
+ * Usage: java optimize.PSOBenchmark [swarmSize] [dimensions] [repetitions]
+ *        java optimize.PSOBenchmark topology [swarmSize] [dimensions] [target] [runs]
+ */
+public class PSOBenchmark {
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("topology")) {
+            topologyComparison(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        int swarmSize = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int dims = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int reps = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        double[] lower = new double[dims];
+        double[] upper = new double[dims];
+        Arrays.fill(lower, -5.12);
+        Arrays.fill(upper, 5.12);
+        double w = 0.72, c1 = 1.49, c2 = 1.49;
+
+        System.out.println("=== PSO Update Kernel Benchmark ===");
+        System.out.println("  Swarm Size: " + swarmSize);
+        System.out.println("  Dimensions: " + dims);
+        System.out.println("  Repetitions: " + reps);
+        System.out.println("----------------------------------------");
+
+        // Original layout: double[swarm][dims]
+        double[][] jx = new double[swarmSize][dims];
+        double[][] jv = new double[swarmSize][dims];
+        double[][] jp = new double[swarmSize][dims];
+        // Flat layout: double[swarm * dims]
+        double[] fx = new double[swarmSize * dims];
+        double[] fv = new double[swarmSize * dims];
+        double[] fp = new double[swarmSize * dims];
+        double[] gbest = new double[dims];
+
+        Random init = new Random(1);
+        for (int i = 0; i < swarmSize; i++) {
+            for (int d = 0; d < dims; d++) {
+                double xd = lower[d] + init.nextDouble() * (upper[d] - lower[d]);
+                jx[i][d] = xd;
+                jp[i][d] = xd;
+                fx[i * dims + d] = xd;
+                fp[i * dims + d] = xd;
+            }
+        }
+
+        double[] r1 = new double[dims];
+        double[] r2 = new double[dims];
+        double[] coef = new double[2 * dims];
+        Random rnd = new Random(42);
+        FastRandom lcg = new FastRandom(42);
+        SplittableRandom fast = new SplittableRandom(42);
+
+        // Warm up all variants so C2 has compiled them before timing
+        for (int k = 0; k < 3; k++) {
+            jaggedSweep(jx, jv, jp, gbest, rnd, w, c1, c2, lower, upper);
+            flatSweep(fx, fv, fp, gbest, rnd, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            flatSweep(fx, fv, fp, gbest, lcg, coef, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            flatSweep(fx, fv, fp, gbest, fast, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            kernelSweep(fx, fv, fp, gbest, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+        }
+
+        long jagged = 0, flatRandom = 0, flatFill = 0, flatSplittable = 0, kernelOnly = 0;
+        for (int k = 0; k < reps; k++) {
+            long t0 = System.nanoTime();
+            jaggedSweep(jx, jv, jp, gbest, rnd, w, c1, c2, lower, upper);
+            long t1 = System.nanoTime();
+            flatSweep(fx, fv, fp, gbest, rnd, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            long t2 = System.nanoTime();
+            flatSweep(fx, fv, fp, gbest, lcg, coef, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            long t3 = System.nanoTime();
+            flatSweep(fx, fv, fp, gbest, fast, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            long t4 = System.nanoTime();
+            kernelSweep(fx, fv, fp, gbest, r1, r2, swarmSize, dims, w, c1, c2, lower, upper);
+            long t5 = System.nanoTime();
+            jagged += t1 - t0;
+            flatRandom += t2 - t1;
+            flatFill += t3 - t2;
+            flatSplittable += t4 - t3;
+            kernelOnly += t5 - t4;
+        }
+
+        double cells = (double) swarmSize * dims * reps;
+        System.out.println(String.format("%-32s %-15s %-10s", "Variant", "ns/cell", "Speedup"));
+        report("jagged + Random (original)", jagged, jagged, cells);
+        report("flat + Random", flatRandom, jagged, cells);
+        report("flat + FastRandom.fill (PSO)", flatFill, jagged, cells);
+        report("flat + SplittableRandom", flatSplittable, jagged, cells);
+        report("flat kernel, coefficients reused", kernelOnly, jagged, cells);
+        System.out.println("checksum: " + (checksum(jx) + Arrays.stream(fx).sum()));
+    }
+
+    private static void topologyComparison(String[] args) {
+        int swarmSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int dims = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        double target = args.length > 2 ? Double.parseDouble(args[2]) : 50.0;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long budget = 200_000;
+
+        double[] lower = new double[dims];
+        double[] upper = new double[dims];
+        Arrays.fill(lower, -5.12);
+        Arrays.fill(upper, 5.12);
+
+        System.out.println("=== PSO Topology Comparison (Rastrigin) ===");
+        System.out.println("  Swarm Size: " + swarmSize);
+        System.out.println("  Dimensions: " + dims);
+        System.out.println("  Target Fitness: " + target);
+        System.out.println("  Evaluation Budget: " + budget);
+        System.out.println("  Runs per Topology: " + runs);
+        System.out.println("----------------------------------------");
+        System.out.println(String.format("%-12s %-10s %-20s %-15s", "Topology", "Hit Rate", "Median Evals to Hit", "Mean Best"));
+
+        for (PSO.Topology topology : PSO.Topology.values()) {
+            long[] evals = new long[runs];
+            int hits = 0;
+            double bestSum = 0;
+            for (int run = 0; run < runs; run++) {
+                PSO.Result r = new PSO(swarmSize, dims, Integer.MAX_VALUE, 0.72, 1.49, 1.49,
+                        lower, upper, PSO.rastrigin(), 1000L + run, false, 10)
+                        .withTopology(topology)
+                        .withTermination(new TerminationPolicy().targetFitness(target).maxEvaluations(budget))
+                        .optimize();
+                bestSum += r.bestFitness;
+                if (r.stopReason == TerminationPolicy.StopReason.TARGET_FITNESS) {
+                    evals[hits++] = r.evaluations;
+                }
+            }
+            Arrays.sort(evals, 0, hits);
+            String median = hits > 0 ? String.valueOf(evals[hits / 2]) : "-";
+            System.out.println(String.format("%-12s %-10s %-20s %-15.4f", topology, hits + "/" + runs, median, bestSum / runs));
+        }
+    }
+
+    private static void report(String name, long nanos, long baseline, double cells) {
+        System.out.println(String.format("%-32s %-15.3f %-10.2f", name, nanos / cells, baseline / (double) nanos));
+    }
+
+    private static double checksum(double[][] a) {
+        double s = 0;
+        for (double[] row : a) for (double x : row) s += x;
+        return s;
+    }
+
+    // Copy of the original PSO.optimize() inner loop
+    private static void jaggedSweep(double[][] x, double[][] v, double[][] pbest, double[] gbest, Random rnd,
+                                    double w, double c1, double c2, double[] lower, double[] upper) {
+        for (int i = 0; i < x.length; i++) {
+            for (int d = 0; d < gbest.length; d++) {
+                double r1 = rnd.nextDouble();
+                double r2 = rnd.nextDouble();
+                v[i][d] = w * v[i][d]
+                        + c1 * r1 * (pbest[i][d] - x[i][d])
+                        + c2 * r2 * (gbest[d] - x[i][d]);
+                x[i][d] += v[i][d];
+                if (x[i][d] < lower[d]) {
+                    x[i][d] = lower[d];
+                    v[i][d] = 0;
+                }
+                if (x[i][d] > upper[d]) {
+                    x[i][d] = upper[d];
+                    v[i][d] = 0;
+                }
+            }
+        }
+    }
+
+    private static void flatSweep(double[] x, double[] v, double[] pbest, double[] gbest,
+                                  RandomGenerator g, double[] r1, double[] r2,
+                                  int swarmSize, int dims, double w, double c1, double c2,
+                                  double[] lower, double[] upper) {
+        for (int i = 0; i < swarmSize; i++) {
+            PSO.drawCoefficients(g, r1, r2);
+            PSO.updateParticle(x, v, pbest, i * dims, gbest, 0, r1, r2, dims, w, c1, c2, lower, upper);
+        }
+    }
+
+    // The asynchronous PSO step: seeded FastRandom, coefficients drawn in one fill
+    private static void flatSweep(double[] x, double[] v, double[] pbest, double[] gbest,
+                                  FastRandom g, double[] coef, double[] r1, double[] r2,
+                                  int swarmSize, int dims, double w, double c1, double c2,
+                                  double[] lower, double[] upper) {
+        for (int i = 0; i < swarmSize; i++) {
+            PSO.drawCoefficients(g, coef, r1, r2);
+            PSO.updateParticle(x, v, pbest, i * dims, gbest, 0, r1, r2, dims, w, c1, c2, lower, upper);
+        }
+    }
+
+    private static void kernelSweep(double[] x, double[] v, double[] pbest, double[] gbest,
+                                    double[] r1, double[] r2, int swarmSize, int dims,
+                                    double w, double c1, double c2, double[] lower, double[] upper) {
+        for (int i = 0; i < swarmSize; i++) {
+            PSO.updateParticle(x, v, pbest, i * dims, gbest, 0, r1, r2, dims, w, c1, c2, lower, upper);
+        }
+    }
+}
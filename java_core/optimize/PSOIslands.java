@@ -0,0 +1,288 @@
+package optimize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Island-model PSO: K independent swarms run on their own threads with their own seeds,
+ * and every migrationInterval iterations each island sends copies of its best particles
+ * to its neighbours in the migration topology, where they replace the worst particles.
+ *
+ * Migrants travel through lock-free per-island inboxes (ConcurrentLinkedQueue). Islands
+ * otherwise run unsynchronised; at a migration point an island only waits for the
+ * messages addressed to it for that epoch, so a run is reproducible for a given seed.
+ */
+public class PSOIslands {
+
+    public enum Topology {
+        RING,
+        FULLY_CONNECTED,
+        RANDOM
+    }
+
+    /** Builds the PSO for one island; the seed is derived from the driver seed. */
+    public interface IslandFactory {
+        PSO create(int island, long seed);
+    }
+
+    public static class Result {
+        public final double[] bestPosition;
+        public final double bestFitness;
+        public final int bestIsland;
+        public final double[] islandBestFitness;
+        public final long evaluations;
+
+        public Result(double[] bestPosition, double bestFitness, int bestIsland,
+                      double[] islandBestFitness, long evaluations) {
+            this.bestPosition = bestPosition;
+            this.bestFitness = bestFitness;
+            this.bestIsland = bestIsland;
+            this.islandBestFitness = islandBestFitness;
+            this.evaluations = evaluations;
+        }
+    }
+
+    // One island's emigrants for one epoch
+    private static final class Migration {
+        final int epoch;
+        final int source;
+        final double[][] positions;
+        final double[] fitness;
+
+        Migration(int epoch, int source, double[][] positions, double[] fitness) {
+            this.epoch = epoch;
+            this.source = source;
+            this.positions = positions;
+            this.fitness = fitness;
+        }
+    }
+
+    private final int islandCount;
+    private final int migrationInterval;
+    private final int migrants;
+    private final Topology topology;
+    private final long seed;
+    private final IslandFactory factory;
+    private final boolean verbose;
+
+    public PSOIslands(int islandCount, int migrationInterval, int migrants,
+                      Topology topology, long seed, IslandFactory factory) {
+        this(islandCount, migrationInterval, migrants, topology, seed, factory, true);
+    }
+
+    public PSOIslands(int islandCount, int migrationInterval, int migrants,
+                      Topology topology, long seed, IslandFactory factory, boolean verbose) {
+        if (islandCount <= 0) throw new IllegalArgumentException("islandCount must be positive: " + islandCount);
+        if (migrationInterval <= 0) throw new IllegalArgumentException("migrationInterval must be positive: " + migrationInterval);
+        if (migrants < 0) throw new IllegalArgumentException("migrants must not be negative: " + migrants);
+        this.islandCount = islandCount;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.topology = topology;
+        this.seed = seed;
+        this.factory = factory;
+        this.verbose = verbose;
+    }
+
+    public Result run() {
+        SplittableRandom seeder = new SplittableRandom(seed);
+        PSO[] islands = new PSO[islandCount];
+        for (int k = 0; k < islandCount; k++) {
+            islands[k] = factory.create(k, seeder.nextLong());
+            if (islands[k].getIterations() != islands[0].getIterations()) {
+                throw new IllegalArgumentException("All islands must run the same number of iterations");
+            }
+        }
+
+        if (verbose) {
+            System.out.println("=== Island-Model PSO ===");
+            System.out.println("Parameters:");
+            System.out.println("  Islands: " + islandCount);
+            System.out.println("  Iterations: " + islands[0].getIterations());
+            System.out.println("  Migration Interval: " + migrationInterval);
+            System.out.println("  Migrants per Island: " + migrants);
+            System.out.println("  Topology: " + topology);
+            System.out.println("----------------------------------------");
+        }
+
+        List<ConcurrentLinkedQueue<Migration>> inboxes = new ArrayList<>(islandCount);
+        for (int k = 0; k < islandCount; k++) inboxes.add(new ConcurrentLinkedQueue<>());
+        AtomicBoolean failed = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(islandCount);
+        PSO.Swarm[] swarms = new PSO.Swarm[islandCount];
+        try {
+            List<Future<PSO.Swarm>> futures = new ArrayList<>(islandCount);
+            for (int k = 0; k < islandCount; k++) {
+                final int island = k;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return runIsland(island, islands[island], inboxes, failed);
+                    } catch (RuntimeException | Error e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            for (int k = 0; k < islandCount; k++) {
+                swarms[k] = futures.get(k).get();
+            }
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Island run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Island failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int bestIsland = 0;
+        double[] islandBest = new double[islandCount];
+        long evaluations = 0;
+        for (int k = 0; k < islandCount; k++) {
+            islandBest[k] = swarms[k].gbestFit;
+            if (islandBest[k] < islandBest[bestIsland]) bestIsland = k;
+            int size = islands[k].getSwarmSize();
+            evaluations += size + 1L + (long) size * islands[k].getIterations();
+        }
+        double[] bestPosition = Arrays.copyOf(swarms[bestIsland].gbest, swarms[bestIsland].gbest.length);
+
+        if (verbose) {
+            for (int k = 0; k < islandCount; k++) {
+                System.out.println(String.format("Island %-4d best fitness: %.6f", k, islandBest[k]));
+            }
+            System.out.println("----------------------------------------");
+            System.out.println("Best Island: " + bestIsland);
+            System.out.println("Final Best Fitness: " + islandBest[bestIsland]);
+            System.out.println("Total Evaluations: " + evaluations);
+        }
+
+        return new Result(bestPosition, islandBest[bestIsland], bestIsland, islandBest, evaluations);
+    }
+
+    private PSO.Swarm runIsland(int island, PSO pso, List<ConcurrentLinkedQueue<Migration>> inboxes,
+                                AtomicBoolean failed) {
+        PSO.Swarm swarm = pso.newSwarm();
+        List<Migration> early = new ArrayList<>();
+        int iterations = pso.getIterations();
+
+        for (int t = 1; t <= iterations; t++) {
+            swarm.step();
+            if (t % migrationInterval != 0 || t == iterations || islandCount == 1) continue;
+            int epoch = t / migrationInterval;
+
+            // Emigrate: copies of this island's best pBests
+            int[] best = swarm.bestParticles(migrants);
+            double[][] positions = new double[best.length][];
+            double[] fitness = new double[best.length];
+            for (int r = 0; r < best.length; r++) {
+                positions[r] = swarm.pbestPosition(best[r]);
+                fitness[r] = swarm.pbestFitness(best[r]);
+            }
+            for (int target = 0; target < islandCount; target++) {
+                if (sendsTo(island, target, epoch)) {
+                    inboxes.get(target).offer(new Migration(epoch, island, positions, fitness));
+                }
+            }
+
+            // Immigrate: wait for every message addressed to this island for this epoch
+            int expected = 0;
+            for (int source = 0; source < islandCount; source++) {
+                if (sendsTo(source, island, epoch)) expected++;
+            }
+            List<Migration> arrived = new ArrayList<>(expected);
+            for (int j = early.size() - 1; j >= 0; j--) {
+                if (early.get(j).epoch == epoch) arrived.add(early.remove(j));
+            }
+            int spins = 0;
+            while (arrived.size() < expected) {
+                Migration m = inboxes.get(island).poll();
+                if (m == null) {
+                    if (failed.get()) throw new CancellationException("Another island failed");
+                    if (++spins < 100) Thread.onSpinWait(); else LockSupport.parkNanos(10_000L);
+                } else if (m.epoch == epoch) {
+                    arrived.add(m);
+                } else {
+                    early.add(m);  // a faster neighbour is already an epoch ahead
+                }
+            }
+            arrived.sort(Comparator.comparingInt(m -> m.source));
+            for (Migration m : arrived) {
+                for (int r = 0; r < m.positions.length; r++) {
+                    swarm.immigrate(m.positions[r], m.fitness[r]);
+                }
+            }
+        }
+        return swarm;
+    }
+
+    // Migration edge source -> target at the given epoch
+    private boolean sendsTo(int source, int target, int epoch) {
+        if (source == target) return false;
+        switch (topology) {
+            case RING:
+                return target == (source + 1) % islandCount;
+            case FULLY_CONNECTED:
+                return true;
+            case RANDOM:
+                // One random peer per island per epoch, derived from (seed, epoch, source) only
+                int r = new SplittableRandom(seed ^ (epoch * 0x9E3779B97F4A7C15L) ^ (source * 0xC2B2AE3D27D4EB4FL))
+                        .nextInt(islandCount - 1);
+                return target == (r >= source ? r + 1 : r);
+            default:
+                throw new IllegalStateException("Unknown topology: " + topology);
+        }
+    }
+
+    public static void main(String[] args) {
+        // ========================================================================
+        // CONFIGURATION - Island model vs. one big swarm on Rastrigin
+        // ========================================================================
+
+        int dim = 30;
+        int islands = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int particlesPerIsland = 40;
+        int iterations = 1000;
+        int migrationInterval = 25;
+        int migrants = 2;
+        Topology topology = Topology.RING;
+        long seed = 42L;
+
+        double[] lo = new double[dim];
+        double[] hi = new double[dim];
+        Arrays.fill(lo, -5.12);
+        Arrays.fill(hi, 5.12);
+
+        // ========================================================================
+        // RUN OPTIMIZATION
+        // ========================================================================
+        long t0 = System.nanoTime();
+        PSO.Result single = new PSO(islands * particlesPerIsland, dim, iterations, 0.72, 1.49, 1.49,
+                lo, hi, PSO.rastrigin(), seed, false, 10).optimize();
+        long t1 = System.nanoTime();
+
+        PSOIslands model = new PSOIslands(islands, migrationInterval, migrants, topology, seed,
+                (island, islandSeed) -> new PSO(particlesPerIsland, dim, iterations, 0.72, 1.49, 1.49,
+                        lo, hi, PSO.rastrigin(), islandSeed, false, 10));
+        Result r = model.run();
+        long t2 = System.nanoTime();
+
+        System.out.println("\n--- Comparison (Rastrigin, " + dim + "D) ---");
+        System.out.println(String.format("%-28s %-15.6f %8.1f ms", "Single swarm (" + islands * particlesPerIsland + " particles)",
+                single.bestFitness, (t1 - t0) / 1e6));
+        System.out.println(String.format("%-28s %-15.6f %8.1f ms", islands + " islands x " + particlesPerIsland,
+                r.bestFitness, (t2 - t1) / 1e6));
+    }
+}
@@ -0,0 +1,77 @@
+package optimize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits an index range into contiguous blocks and runs them on a ForkJoinPool.
+ * Used by the optimizers' parallel modes; a null pool runs the whole range inline
+ * on the calling thread.
+ */
+final class Parallel {
+    interface RangeBody {
+        void run(int from, int to);
+    }
+
+    interface BlockBody {
+        void run(int block, int from, int to);
+    }
+
+    private Parallel() {
+    }
+
+    /** Number of blocks forBlocks() splits count items into; constant for a given pool. */
+    static int blockCount(ForkJoinPool pool, int count) {
+        if (pool == null || count <= 1) return 1;
+        return Math.min(count, pool.getParallelism() * 4);
+    }
+
+    static void forRange(ForkJoinPool pool, int count, RangeBody body) {
+        forBlocks(pool, count, (block, from, to) -> body.run(from, to));
+    }
+
+    /**
+     * Like forRange, but also passes the block index (0 .. blockCount - 1) so callers can
+     * keep per-block scratch buffers and partial results. Block b always covers the same
+     * index range, whichever thread runs it.
+     */
+    static void forBlocks(ForkJoinPool pool, int count, BlockBody body) {
+        int blocks = blockCount(pool, count);
+        if (blocks == 1) {
+            body.run(0, 0, count);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            int block = b;
+            int from = (int) ((long) count * b / blocks);
+            int to = (int) ((long) count * (b + 1) / blocks);
+            tasks.add(pool.submit(() -> body.run(block, from, to)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /** Number of chunks forChunks() splits count items into. */
+    static int chunkCount(int count, int chunkSize) {
+        return (count + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * Splits [0, count) into chunks of chunkSize items (the last one may be shorter) and
+     * runs body.run(chunk, from, to) for each. Unlike forBlocks the split does not depend
+     * on the pool, so per-chunk state gives the same result for any thread count; the
+     * pool only decides how many consecutive chunks each task runs.
+     */
+    static void forChunks(ForkJoinPool pool, int count, int chunkSize, BlockBody body) {
+        int chunks = chunkCount(count, chunkSize);
+        forBlocks(pool, chunks, (block, first, last) -> {
+            for (int c = first; c < last; c++) {
+                body.run(c, c * chunkSize, Math.min(count, (c + 1) * chunkSize));
+            }
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package optimize;
+
+/**
+ * Pheromone matrix of ACO_TSP with lazy evaporation. Evaporation multiplies one global
+ * scale factor instead of every entry, and the stored values are kept divided by it.
+ * A running sum of the off-diagonal entries gives the average pheromone in O(1).
+ *
+ * As the scale shrinks, the stored values grow. Once it falls below MIN_SCALE the
+ * scale is folded back into the entries, well before they could overflow a float.
+ * That O(n^2) pass runs once every few hundred iterations for typical rho. It also
+ * recomputes the running sum, so rounding drift does not accumulate.
+ *
+ * MAX-MIN bounds are applied when a value is read or deposited, not by a pass over the
+ * matrix, so evaporation stays O(1). The running sum, and so average(), counts the
+ * stored values before clamping.
+ */
+final class PheromoneMatrix {
+    private static final double MIN_SCALE = 1e-15;
+
+    private final CompactMatrix values;
+    private final int n;
+    private double scale = 1.0;
+    private double sum;  // sum of all entries (i, j), i != j
+    private boolean bounded;
+    private double min;
+    private double max;
+    private long version;  // bumped whenever every entry may have changed at once
+
+    PheromoneMatrix(CompactMatrix values) {
+        this.values = values;
+        this.n = values.n;
+    }
+
+    double get(int i, int j) {
+        return get(i, j, scale);
+    }
+
+    /**
+     * The entry as it would read with the global scale at atScale instead, i.e. get(i, j)
+     * times atScale / scale() when unbounded. Lets a cache of values derived from the
+     * entries stay valid across evaporation.
+     */
+    double get(int i, int j, double atScale) {
+        double v = values.get(i, j) * atScale;
+        if (bounded) v = v < min ? min : (v > max ? max : v);
+        return v;
+    }
+
+    /** The global scale factor that evaporation shrinks. */
+    double scale() {
+        return scale;
+    }
+
+    boolean isBounded() {
+        return bounded;
+    }
+
+    /** Changes whenever every entry may have changed at once: fill, renormalisation, bounds. */
+    long version() {
+        return version;
+    }
+
+    /** Clamps every value read to [min, max] from now on. */
+    void setBounds(double min, double max) {
+        if (min > max) throw new IllegalArgumentException("tau_min > tau_max: " + min + " > " + max);
+        this.bounded = true;
+        this.min = min;
+        this.max = max;
+        version++;
+    }
+
+    /**
+     * Stops clamping. The clamped values are written back first, so every entry keeps
+     * the value it was last read as.
+     */
+    void clearBounds() {
+        if (!bounded) return;
+        for (int i = 0; i < n; i++) {
+            for (int j = values.isSymmetric() ? i : 0; j < n; j++) {
+                if (i != j) values.set(i, j, get(i, j) / scale);
+            }
+        }
+        bounded = false;
+        sum = values.sumOffDiagonal() * scale;
+        version++;
+    }
+
+    /** Sets every off-diagonal entry to value and the diagonal to 0. */
+    void fill(double value) {
+        scale = 1.0;
+        if (bounded) value = value < min ? min : (value > max ? max : value);
+        for (int i = 0; i < n; i++) {
+            for (int j = values.isSymmetric() ? i : 0; j < n; j++) {
+                values.set(i, j, i == j ? 0.0 : value);
+            }
+        }
+        sum = (double) n * (n - 1) * value;
+        version++;
+    }
+
+    /** Multiplies every entry by factor, in O(1). */
+    void evaporate(double factor) {
+        scale *= factor;
+        sum *= factor;
+        if (scale < MIN_SCALE) renormalise();
+    }
+
+    /** Adds value to (i, j) and (j, i). */
+    void deposit(int i, int j, double value) {
+        if (bounded) {
+            set(i, j, get(i, j) + value);
+            return;
+        }
+        values.addSymmetric(i, j, value / scale);
+        if (i != j) sum += 2.0 * value;
+    }
+
+    /** Sets (i, j) and (j, i) to value (clamped when bounded). */
+    void set(int i, int j, double value) {
+        if (bounded) value = value < min ? min : (value > max ? max : value);
+        double old = values.get(i, j) * scale;
+        values.set(i, j, value / scale);
+        if (!values.isSymmetric()) values.set(j, i, value / scale);
+        if (i != j) sum += 2.0 * (value - old);
+    }
+
+    /** Average of the off-diagonal entries. */
+    double average() {
+        long count = (long) n * (n - 1);
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    boolean isSymmetric() {
+        return values.isSymmetric();
+    }
+
+    private void renormalise() {
+        values.scale(scale);
+        scale = 1.0;
+        sum = values.sumOffDiagonal();
+        version++;
+    }
+}
@@ -0,0 +1,694 @@
+package optimize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A symmetric or asymmetric TSP instance: n cities and the distance between any two.
+ * Coordinate instances (EUC_2D, ATT, GEO) compute distances on demand from the city
+ * coordinates, so they need O(n) memory instead of a materialised n x n matrix.
+ * Explicit matrices live on the heap, or in a memory-mapped binary file when they are
+ * too large for it (see convertToBinary and mapBinary).
+ *
+ * Distances follow the TSPLIB definitions, including the rounding to integers.
+ */
+public abstract class TSPInstance {
+    public enum EdgeWeightType {
+        EUC_2D,
+        ATT,
+        GEO,
+        EXPLICIT
+    }
+
+    private final String name;
+    private final int n;
+
+    TSPInstance(String name, int n) {
+        this.name = name;
+        this.n = n;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public abstract EdgeWeightType getEdgeWeightType();
+
+    public abstract double distance(int i, int j);
+
+    /** True if distance(i, j) == distance(j, i) for every pair. */
+    public abstract boolean isSymmetric();
+
+    /** True for EUC_2D, ATT and GEO instances, whose cities x(i) and y(i) identify. */
+    boolean hasCoordinates() {
+        return false;
+    }
+
+    double x(int i) {
+        throw new UnsupportedOperationException(getName() + " has no coordinates");
+    }
+
+    double y(int i) {
+        throw new UnsupportedOperationException(getName() + " has no coordinates");
+    }
+
+    /** The k cities closest to i, closest first (ties keep the lower index). */
+    int[] nearestNeighbours(int i, int k) {
+        if (k == 0) return new int[0];
+        int[] idx = new int[k];
+        double[] d = new double[k];
+        int size = 0;
+        for (int j = 0; j < n; j++) {
+            if (j == i) continue;
+            double dj = distance(i, j);
+            if (size == k && dj >= d[k - 1]) continue;
+            int pos = size < k ? size++ : k - 1;
+            while (pos > 0 && d[pos - 1] > dj) {
+                idx[pos] = idx[pos - 1];
+                d[pos] = d[pos - 1];
+                pos--;
+            }
+            idx[pos] = j;
+            d[pos] = dj;
+        }
+        return idx;
+    }
+
+    // ============================================================================
+    // FACTORIES
+    // ============================================================================
+
+    /** Wraps a distance matrix; the array is used directly, not copied. */
+    public static TSPInstance fromMatrix(double[][] distanceMatrix) {
+        return new MatrixInstance("matrix", distanceMatrix);
+    }
+
+    /** Coordinate instance with on-demand distances of the given TSPLIB type. */
+    public static TSPInstance fromCoordinates(String name, EdgeWeightType type, double[] x, double[] y) {
+        if (type == EdgeWeightType.EXPLICIT) throw new IllegalArgumentException("EXPLICIT instances have no coordinates");
+        if (x.length != y.length) throw new IllegalArgumentException("x and y differ in length: " + x.length + " != " + y.length);
+        return new CoordinateInstance(name, type, Arrays.copyOf(x, x.length), Arrays.copyOf(y, y.length));
+    }
+
+    /**
+     * Loads a TSPLIB file of type TSP or ATSP. Coordinate instances keep only the
+     * coordinates; EXPLICIT weights (FULL_MATRIX, UPPER_ROW, LOWER_ROW, UPPER_DIAG_ROW,
+     * LOWER_DIAG_ROW) are read into a flat on-heap matrix, triangular when the format is.
+     */
+    public static TSPInstance load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            Header h = Header.read(in, file);
+            if (h.type != EdgeWeightType.EXPLICIT) {
+                double[][] xy = readCoordinates(in, h);
+                return new CoordinateInstance(h.name, h.type, xy[0], xy[1]);
+            }
+            boolean triangular = !h.format.equals("FULL_MATRIX");
+            double[] a = new double[(int) CompactMatrix.cells(h.dimension, triangular)];
+            int[] rowStart = triangular ? CompactMatrix.rowStarts(h.dimension) : null;
+            int n = h.dimension;
+            readWeights(in, h, (i, j, w) -> {
+                if (triangular) {
+                    a[i <= j ? rowStart[i] + j : rowStart[j] + i] = w;
+                } else {
+                    a[i * n + j] = w;
+                }
+            });
+            return new FlatMatrixInstance(h.name, n, a, rowStart);
+        }
+    }
+
+    // ============================================================================
+    // MEMORY-MAPPED BINARY MATRICES
+    // ============================================================================
+    //
+    // Layout (big-endian): int magic "TSPM", int version, int n, int layout
+    // (0 = full n x n, 1 = upper triangle with diagonal), then the distances as doubles
+    // in row-major order. The file is mapped as a MappedFile, so it may exceed 2 GB.
+
+    private static final int MAGIC = 0x5453504D;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    /** Writes the instance's distances in the binary format read by mapBinary. */
+    public static void writeBinary(TSPInstance instance, Path file) throws IOException {
+        int n = instance.size();
+        boolean triangular = instance.isSymmetric();
+        try (MappedWriter out = new MappedWriter(file, n, triangular)) {
+            for (int i = 0; i < n; i++) {
+                for (int j = triangular ? i : 0; j < n; j++) {
+                    out.set(i, j, instance.distance(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a TSPLIB file straight to the binary format. EXPLICIT weights are
+     * streamed into the mapped file, so the matrix never has to fit on the heap.
+     */
+    public static void convertToBinary(Path tsplibFile, Path binaryFile) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(tsplibFile, StandardCharsets.ISO_8859_1)) {
+            Header h = Header.read(in, tsplibFile);
+            if (h.type != EdgeWeightType.EXPLICIT) {
+                double[][] xy = readCoordinates(in, h);
+                writeBinary(new CoordinateInstance(h.name, h.type, xy[0], xy[1]), binaryFile);
+                return;
+            }
+            try (MappedWriter out = new MappedWriter(binaryFile, h.dimension, !h.format.equals("FULL_MATRIX"))) {
+                readWeights(in, h, out::set);
+            }
+        }
+    }
+
+    /** Maps a file written by writeBinary or convertToBinary; distances are read from the page cache. */
+    public static TSPInstance mapBinary(Path file) throws IOException {
+        MappedFile mapped = MappedFile.open(file);
+        if (mapped.size() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary distance matrix: " + file);
+        }
+        int version = mapped.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported binary matrix version " + version + ": " + file);
+        int n = mapped.getInt(8);
+        boolean triangular = mapped.getInt(12) == 1;
+        if (mapped.size() < HEADER_BYTES + 8L * cellCount(n, triangular)) {
+            throw new IOException("Truncated binary matrix: " + file);
+        }
+        return new MappedInstance(file.getFileName().toString(), n, triangular, mapped);
+    }
+
+    private static long cellCount(int n, boolean triangular) {
+        return triangular ? (long) n * (n + 1) / 2 : (long) n * n;
+    }
+
+    // Byte offset of cell (i, j)
+    private static long offset(int n, long[] rowStart, int i, int j) {
+        long cell = rowStart == null ? (long) i * n + j : (i <= j ? rowStart[i] + j : rowStart[j] + i);
+        return HEADER_BYTES + 8L * cell;
+    }
+
+    static long[] longRowStarts(int n) {
+        long[] start = new long[n];
+        for (int i = 0; i < n; i++) start[i] = (long) i * n - (long) i * (i - 1) / 2 - i;
+        return start;
+    }
+
+    private static final class MappedWriter implements AutoCloseable {
+        private final MappedFile file;
+        private final int n;
+        private final long[] rowStart;
+
+        MappedWriter(Path path, int n, boolean triangular) throws IOException {
+            this.n = n;
+            this.rowStart = triangular ? longRowStarts(n) : null;
+            file = MappedFile.create(path, HEADER_BYTES + 8L * cellCount(n, triangular));
+            file.putInt(0, MAGIC);
+            file.putInt(4, VERSION);
+            file.putInt(8, n);
+            file.putInt(12, triangular ? 1 : 0);
+        }
+
+        void set(int i, int j, double w) {
+            file.putDouble(offset(n, rowStart, i, j), w);
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    // ============================================================================
+    // TSPLIB PARSING
+    // ============================================================================
+
+    private static final class Header {
+        String name = "unnamed";
+        int dimension = -1;
+        EdgeWeightType type;
+        String format = "";
+
+        static Header read(BufferedReader in, Path file) throws IOException {
+            Header h = new Header();
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String key = line;
+                String value = "";
+                int colon = line.indexOf(':');
+                if (colon >= 0) {
+                    key = line.substring(0, colon).trim();
+                    value = line.substring(colon + 1).trim();
+                }
+                switch (key.toUpperCase(Locale.ROOT)) {
+                    case "NAME":
+                        h.name = value;
+                        break;
+                    case "TYPE":
+                        if (!value.equals("TSP") && !value.equals("ATSP")) {
+                            throw new IOException("Unsupported TSPLIB TYPE " + value + ": " + file);
+                        }
+                        break;
+                    case "DIMENSION":
+                        h.dimension = Integer.parseInt(value);
+                        break;
+                    case "EDGE_WEIGHT_TYPE":
+                        try {
+                            h.type = EdgeWeightType.valueOf(value);
+                        } catch (IllegalArgumentException e) {
+                            throw new IOException("Unsupported EDGE_WEIGHT_TYPE " + value + ": " + file);
+                        }
+                        break;
+                    case "EDGE_WEIGHT_FORMAT":
+                        h.format = value;
+                        break;
+                    case "NODE_COORD_SECTION":
+                    case "EDGE_WEIGHT_SECTION":
+                        h.validate(key, file);
+                        return h;
+                    default:
+                        // COMMENT, DISPLAY_DATA_TYPE, ...
+                        break;
+                }
+            }
+            throw new IOException("No NODE_COORD_SECTION or EDGE_WEIGHT_SECTION: " + file);
+        }
+
+        private void validate(String section, Path file) throws IOException {
+            if (dimension <= 0) throw new IOException("Missing DIMENSION: " + file);
+            if (type == null) throw new IOException("Missing EDGE_WEIGHT_TYPE: " + file);
+            boolean explicit = type == EdgeWeightType.EXPLICIT;
+            if (explicit != section.equalsIgnoreCase("EDGE_WEIGHT_SECTION")) {
+                throw new IOException(section + " does not match EDGE_WEIGHT_TYPE " + type + ": " + file);
+            }
+            if (explicit && !Arrays.asList("FULL_MATRIX", "UPPER_ROW", "LOWER_ROW", "UPPER_DIAG_ROW", "LOWER_DIAG_ROW")
+                    .contains(format)) {
+                throw new IOException("Unsupported EDGE_WEIGHT_FORMAT " + format + ": " + file);
+            }
+        }
+    }
+
+    private static double[][] readCoordinates(BufferedReader in, Header h) throws IOException {
+        double[] x = new double[h.dimension];
+        double[] y = new double[h.dimension];
+        for (int i = 0; i < h.dimension; i++) {
+            String line = in.readLine();
+            if (line == null) throw new IOException("NODE_COORD_SECTION ends after " + i + " of " + h.dimension + " cities");
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length < 3) {
+                i--;  // blank line
+                continue;
+            }
+            x[i] = Double.parseDouble(parts[1]);
+            y[i] = Double.parseDouble(parts[2]);
+        }
+        return new double[][] {x, y};
+    }
+
+    private interface WeightSink {
+        void set(int i, int j, double w);
+    }
+
+    private static void readWeights(BufferedReader in, Header h, WeightSink sink) throws IOException {
+        int n = h.dimension;
+        Tokens tokens = new Tokens(in);
+        for (int i = 0; i < n; i++) {
+            int from;
+            int to;
+            switch (h.format) {
+                case "FULL_MATRIX":
+                    from = 0;
+                    to = n;
+                    break;
+                case "UPPER_ROW":
+                    from = i + 1;
+                    to = n;
+                    break;
+                case "UPPER_DIAG_ROW":
+                    from = i;
+                    to = n;
+                    break;
+                case "LOWER_ROW":
+                    from = 0;
+                    to = i;
+                    break;
+                default:  // LOWER_DIAG_ROW
+                    from = 0;
+                    to = i + 1;
+                    break;
+            }
+            for (int j = from; j < to; j++) {
+                double w = tokens.next();
+                sink.set(i, j, w);
+                if (!h.format.equals("FULL_MATRIX")) sink.set(j, i, w);
+            }
+        }
+    }
+
+    // Whitespace-separated numbers spread over any number of lines
+    private static final class Tokens {
+        private final BufferedReader in;
+        private String[] parts = new String[0];
+        private int next;
+
+        Tokens(BufferedReader in) {
+            this.in = in;
+        }
+
+        double next() throws IOException {
+            while (next == parts.length) {
+                String line = in.readLine();
+                if (line == null) throw new IOException("EDGE_WEIGHT_SECTION ended early");
+                line = line.trim();
+                parts = line.isEmpty() ? new String[0] : line.split("\\s+");
+                next = 0;
+            }
+            return Double.parseDouble(parts[next++]);
+        }
+    }
+
+    // ============================================================================
+    // IMPLEMENTATIONS
+    // ============================================================================
+
+    private static final class MatrixInstance extends TSPInstance {
+        private final double[][] d;
+        private Boolean symmetric;
+
+        MatrixInstance(String name, double[][] d) {
+            super(name, d.length);
+            this.d = d;
+        }
+
+        @Override
+        public EdgeWeightType getEdgeWeightType() {
+            return EdgeWeightType.EXPLICIT;
+        }
+
+        @Override
+        public double distance(int i, int j) {
+            return d[i][j];
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            if (symmetric == null) {
+                boolean s = true;
+                for (int i = 0; i < d.length && s; i++) {
+                    for (int j = i + 1; j < d.length; j++) {
+                        if (d[i][j] != d[j][i]) {
+                            s = false;
+                            break;
+                        }
+                    }
+                }
+                symmetric = s;
+            }
+            return symmetric;
+        }
+    }
+
+    private static final class FlatMatrixInstance extends TSPInstance {
+        private final double[] a;
+        private final int[] rowStart;  // null for a full matrix
+
+        FlatMatrixInstance(String name, int n, double[] a, int[] rowStart) {
+            super(name, n);
+            this.a = a;
+            this.rowStart = rowStart;
+        }
+
+        @Override
+        public EdgeWeightType getEdgeWeightType() {
+            return EdgeWeightType.EXPLICIT;
+        }
+
+        @Override
+        public double distance(int i, int j) {
+            if (rowStart == null) return a[i * size() + j];
+            return a[i <= j ? rowStart[i] + j : rowStart[j] + i];
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            if (rowStart != null) return true;
+            int n = size();
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (a[i * n + j] != a[j * n + i]) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class MappedInstance extends TSPInstance {
+        private final MappedFile file;
+        private final long[] rowStart;  // null for a full matrix
+        private Boolean symmetric;
+
+        MappedInstance(String name, int n, boolean triangular, MappedFile file) {
+            super(name, n);
+            this.file = file;
+            this.rowStart = triangular ? longRowStarts(n) : null;
+        }
+
+        @Override
+        public EdgeWeightType getEdgeWeightType() {
+            return EdgeWeightType.EXPLICIT;
+        }
+
+        @Override
+        public double distance(int i, int j) {
+            return file.getDouble(offset(size(), rowStart, i, j));
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            if (symmetric == null) {
+                boolean s = rowStart != null;
+                if (!s) {
+                    s = true;
+                    int n = size();
+                    for (int i = 0; i < n && s; i++) {
+                        for (int j = i + 1; j < n; j++) {
+                            if (distance(i, j) != distance(j, i)) {
+                                s = false;
+                                break;
+                            }
+                        }
+                    }
+                }
+                symmetric = s;
+            }
+            return symmetric;
+        }
+    }
+
+    private static final class CoordinateInstance extends TSPInstance {
+        private static final double EARTH_RADIUS = 6378.388;
+
+        private final EdgeWeightType type;
+        private final double[] x;
+        private final double[] y;
+        private final double[] latitude;   // GEO only, radians
+        private final double[] longitude;  // GEO only, radians
+        private Grid grid;
+
+        CoordinateInstance(String name, EdgeWeightType type, double[] x, double[] y) {
+            super(name, x.length);
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            if (type == EdgeWeightType.GEO) {
+                latitude = new double[x.length];
+                longitude = new double[x.length];
+                for (int i = 0; i < x.length; i++) {
+                    latitude[i] = geoRadians(x[i]);
+                    longitude[i] = geoRadians(y[i]);
+                }
+            } else {
+                latitude = null;
+                longitude = null;
+            }
+        }
+
+        // TSPLIB GEO: DDD.MM degrees and minutes to radians
+        private static double geoRadians(double v) {
+            double deg = (int) v;
+            double min = v - deg;
+            return Math.PI * (deg + 5.0 * min / 3.0) / 180.0;
+        }
+
+        @Override
+        public EdgeWeightType getEdgeWeightType() {
+            return type;
+        }
+
+        @Override
+        public double distance(int i, int j) {
+            switch (type) {
+                case EUC_2D: {
+                    double dx = x[i] - x[j];
+                    double dy = y[i] - y[j];
+                    return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+                }
+                case ATT: {
+                    double dx = x[i] - x[j];
+                    double dy = y[i] - y[j];
+                    double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                    int t = (int) (r + 0.5);
+                    return t < r ? t + 1 : t;
+                }
+                case GEO: {
+                    if (i == j) return 0.0;
+                    double q1 = Math.cos(longitude[i] - longitude[j]);
+                    double q2 = Math.cos(latitude[i] - latitude[j]);
+                    double q3 = Math.cos(latitude[i] + latitude[j]);
+                    return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+                }
+                default:
+                    throw new IllegalStateException("Unknown edge weight type: " + type);
+            }
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return true;
+        }
+
+        @Override
+        boolean hasCoordinates() {
+            return true;
+        }
+
+        @Override
+        double x(int i) {
+            return x[i];
+        }
+
+        @Override
+        double y(int i) {
+            return y[i];
+        }
+
+        @Override
+        int[] nearestNeighbours(int i, int k) {
+            // EUC_2D and ATT distances grow with the plane distance, so a grid finds the
+            // neighbours in about O(k) per city instead of a scan over all n
+            if (type == EdgeWeightType.GEO) return super.nearestNeighbours(i, k);
+            if (grid == null) grid = new Grid(x, y);
+            return grid.nearest(i, k, this);
+        }
+    }
+
+    // Uniform bucket grid over the bounding box, about two cities per cell. The cell is at
+    // least 1/n of the longer side, so collinear cities still give O(n) cells
+    private static final class Grid {
+        private final double[] x;
+        private final double[] y;
+        private final double minX;
+        private final double minY;
+        private final double cell;
+        private final int cols;
+        private final int rows;
+        private final int[] cellStart;  // cities of cell c are order[cellStart[c], cellStart[c + 1])
+        private final int[] order;
+
+        Grid(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+            int n = x.length;
+            double loX = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY;
+            double loY = Double.POSITIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                loX = Math.min(loX, x[i]);
+                hiX = Math.max(hiX, x[i]);
+                loY = Math.min(loY, y[i]);
+                hiY = Math.max(hiY, y[i]);
+            }
+            minX = loX;
+            minY = loY;
+            double w = hiX - loX;
+            double h = hiY - loY;
+            double size = Math.max(Math.sqrt(2.0 * w * h / Math.max(n, 1)), Math.max(w, h) / Math.max(n, 1));
+            cell = size > 0 ? size : 1.0;  // all cities at one point: a single cell
+            cols = (int) (w / cell) + 1;
+            rows = (int) (h / cell) + 1;
+
+            cellStart = new int[cols * rows + 1];
+            for (int i = 0; i < n; i++) cellStart[cellOf(i) + 1]++;
+            for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+            order = new int[n];
+            int[] fill = Arrays.copyOf(cellStart, cellStart.length - 1);
+            for (int i = 0; i < n; i++) order[fill[cellOf(i)]++] = i;
+        }
+
+        private int cellOf(int i) {
+            int cx = (int) ((x[i] - minX) / cell);
+            int cy = (int) ((y[i] - minY) / cell);
+            return cy * cols + cx;
+        }
+
+        int[] nearest(int i, int k, TSPInstance metric) {
+            if (k == 0) return new int[0];
+            int cx = (int) ((x[i] - minX) / cell);
+            int cy = (int) ((y[i] - minY) / cell);
+            int[] idx = new int[k];
+            double[] plane = new double[k];
+            int size = 0;
+            // Rings of cells around city i; after ring r every unseen city is at least r * cell away
+            for (int r = 0; ; r++) {
+                if (size == k && plane[k - 1] <= (r - 1) * cell) break;
+                if (cx - r < 0 && cy - r < 0 && cx + r >= cols && cy + r >= rows) break;
+                for (int gy = cy - r; gy <= cy + r; gy++) {
+                    if (gy < 0 || gy >= rows) continue;
+                    boolean edgeRow = gy == cy - r || gy == cy + r;
+                    for (int gx = cx - r; gx <= cx + r; gx += edgeRow ? 1 : 2 * r) {
+                        if (gx >= 0 && gx < cols) {
+                            int c = gy * cols + gx;
+                            for (int q = cellStart[c]; q < cellStart[c + 1]; q++) {
+                                int j = order[q];
+                                if (j == i) continue;
+                                double dj = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                                if (size == k && !closer(dj, j, plane[k - 1], idx[k - 1])) continue;
+                                int pos = size < k ? size++ : k - 1;
+                                while (pos > 0 && closer(dj, j, plane[pos - 1], idx[pos - 1])) {
+                                    idx[pos] = idx[pos - 1];
+                                    plane[pos] = plane[pos - 1];
+                                    pos--;
+                                }
+                                idx[pos] = j;
+                                plane[pos] = dj;
+                            }
+                        }
+                        if (r == 0) break;
+                    }
+                }
+            }
+            // Order by the TSPLIB metric, whose rounding can tie or swap close neighbours
+            Integer[] boxed = new Integer[size];
+            for (int q = 0; q < size; q++) boxed[q] = idx[q];
+            Arrays.sort(boxed, (a, b) -> {
+                int c = Double.compare(metric.distance(i, a), metric.distance(i, b));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            int[] result = new int[size];
+            for (int q = 0; q < size; q++) result[q] = boxed[q];
+            return result;
+        }
+
+        private static boolean closer(double d, int j, double otherD, int other) {
+            return d < otherD || (d == otherD && j < other);
+        }
+    }
+}
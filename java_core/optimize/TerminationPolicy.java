@@ -0,0 +1,141 @@
+package optimize;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Early-termination rules shared by PSO and GWO. A policy is plain configuration;
+ * each optimize() run calls start() to get a Monitor and asks it after every
+ * iteration whether to stop. Rules that are not configured cost nothing, and the
+ * population diameter is only computed when a collapse threshold is set.
+ *
+ * Example:
+ *   new TerminationPolicy().targetFitness(1e-8).maxEvaluations(50_000).stagnation(100, 1e-12)
+ */
+public class TerminationPolicy {
+
+    public enum StopReason {
+        MAX_ITERATIONS,
+        TARGET_FITNESS,
+        MAX_EVALUATIONS,
+        DEADLINE,
+        STAGNATION,
+        DIAMETER_COLLAPSE
+    }
+
+    private double targetFitness = Double.NEGATIVE_INFINITY;
+    private long maxEvaluations = Long.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+    private int stagnationIterations = Integer.MAX_VALUE;
+    private double stagnationEpsilon = 0.0;
+    private double minDiameter = 0.0;
+
+    /** Stop as soon as the best fitness is at or below target. */
+    public TerminationPolicy targetFitness(double target) {
+        this.targetFitness = target;
+        return this;
+    }
+
+    /**
+     * Stop before an iteration that would push the evaluation count past max. The
+     * evaluations of the initial population count too, so a run rejects a budget
+     * smaller than that (swarmSize + 1 for PSO, wolfCount for GWO).
+     */
+    public TerminationPolicy maxEvaluations(long max) {
+        if (max <= 0) throw new IllegalArgumentException("maxEvaluations must be positive: " + max);
+        this.maxEvaluations = max;
+        return this;
+    }
+
+    /** Stop once this much wall-clock time has passed since the run started. */
+    public TerminationPolicy deadline(Duration budget) {
+        this.deadlineNanos = budget.toNanos();
+        return this;
+    }
+
+    /** Stop when the best fitness has not improved by more than epsilon for the given number of iterations. */
+    public TerminationPolicy stagnation(int iterations, double epsilon) {
+        if (iterations <= 0) throw new IllegalArgumentException("stagnation iterations must be positive: " + iterations);
+        this.stagnationIterations = iterations;
+        this.stagnationEpsilon = epsilon;
+        return this;
+    }
+
+    /** Stop when the population's bounding box has shrunk below this width in every dimension. */
+    public TerminationPolicy diameterCollapse(double minDiameter) {
+        this.minDiameter = minDiameter;
+        return this;
+    }
+
+    /**
+     * Starts a run that spends initialEvaluations on its initial population, before the
+     * first check.
+     *
+     * @throws IllegalArgumentException if that alone exceeds the evaluation budget
+     */
+    public Monitor start(long initialEvaluations) {
+        if (initialEvaluations > maxEvaluations) {
+            throw new IllegalArgumentException("maxEvaluations " + maxEvaluations
+                + " is smaller than the " + initialEvaluations + " evaluations of initialization");
+        }
+        return new Monitor();
+    }
+
+    /** Per-run state: start time and the last iteration that improved the best fitness. */
+    public final class Monitor {
+        private final long startNanos = System.nanoTime();
+        private double bestSeen = Double.POSITIVE_INFINITY;
+        private int lastImprovement = 0;
+
+        private Monitor() {
+        }
+
+        /**
+         * @param iteration       iterations completed so far (0 right after initialization)
+         * @param bestFitness     current gBest / alpha fitness
+         * @param evaluations     fitness evaluations used so far
+         * @param nextCost        evaluations the next iteration would use
+         * @param diameter        population diameter, only invoked when a collapse threshold is set
+         * @return the reason to stop, or null to keep going
+         */
+        public StopReason check(int iteration, double bestFitness, long evaluations, long nextCost,
+                                DoubleSupplier diameter) {
+            if (bestFitness <= targetFitness) return StopReason.TARGET_FITNESS;
+            if (evaluations + nextCost > maxEvaluations) return StopReason.MAX_EVALUATIONS;
+            if (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - startNanos >= deadlineNanos) {
+                return StopReason.DEADLINE;
+            }
+            if (bestSeen - bestFitness > stagnationEpsilon || bestSeen == Double.POSITIVE_INFINITY) {
+                bestSeen = bestFitness;
+                lastImprovement = iteration;
+            } else if (iteration - lastImprovement >= stagnationIterations) {
+                return StopReason.STAGNATION;
+            }
+            if (minDiameter > 0.0 && diameter.getAsDouble() < minDiameter) return StopReason.DIAMETER_COLLAPSE;
+            return null;
+        }
+    }
+
+    /**
+     * Largest side of the bounding box of count row-major points of the given dimension;
+     * a cheap O(count * dims) stand-in for the pairwise diameter.
+     */
+    static double boundingDiameter(double[] positions, int count, int dims) {
+        double[] min = new double[dims];
+        double[] max = new double[dims];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < count; i++) {
+            int off = i * dims;
+            for (int d = 0; d < dims; d++) {
+                double v = positions[off + d];
+                if (v < min[d]) min[d] = v;
+                if (v > max[d]) max[d] = v;
+            }
+        }
+        double widest = 0.0;
+        for (int d = 0; d < dims; d++) widest = Math.max(widest, max[d] - min[d]);
+        return widest;
+    }
+}
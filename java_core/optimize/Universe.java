@@ -0,0 +1,79 @@
+package optimize;
+
+/**
+ * Discretised universe of discourse: resolution evenly spaced points from lower to
+ * upper. The points are computed, not stored, so a universe of any size costs nothing
+ * and is shared by every FuzzySet defined over it.
+ */
+public final class Universe {
+    private final double lower;
+    private final double upper;
+    private final double step;
+    private final int size;
+
+    public Universe(double lower, double upper, int resolution) {
+        if (resolution < 2) throw new IllegalArgumentException("resolution must be at least 2: " + resolution);
+        if (!(upper > lower)) throw new IllegalArgumentException("upper must exceed lower: " + lower + " .. " + upper);
+        this.lower = lower;
+        this.upper = upper;
+        this.size = resolution;
+        this.step = (upper - lower) / (resolution - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lower() {
+        return lower;
+    }
+
+    public double upper() {
+        return upper;
+    }
+
+    public double step() {
+        return step;
+    }
+
+    /** The i-th point, lower + i * step. */
+    public double get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("point " + i + " of " + size);
+        return lower + i * step;
+    }
+
+    /** Index of the point closest to x (the lower one on a tie), in O(1). */
+    public int indexOf(double x) {
+        double t = Math.floor((x - lower) / step);
+        int guess = t < 0 ? 0 : (t >= size ? size - 1 : (int) t);
+        // The division may round to the wrong cell, so compare the neighbours as well
+        int best = Math.max(0, guess - 1);
+        double bestDiff = Math.abs(lower + best * step - x);
+        for (int i = best + 1; i <= Math.min(size - 1, guess + 2); i++) {
+            double diff = Math.abs(lower + i * step - x);
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Universe)) return false;
+        Universe u = (Universe) o;
+        return size == u.size && Double.compare(lower, u.lower) == 0 && Double.compare(upper, u.upper) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Double.hashCode(lower) + Double.hashCode(upper)) + size;
+    }
+
+    @Override
+    public String toString() {
+        return "Universe[" + lower + " .. " + upper + ", " + size + " points]";
+    }
+}